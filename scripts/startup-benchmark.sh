@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+#
+# Compares the default startup with the optimized startup mode (Spring AOT, AppCDS, lazy
+# initialization and trimmed auto-configuration) and reports time-to-first-query and peak RSS.
+#
+# Requires a running database as configured in application.properties and a prior
+#   ./mvnw -Pstartup verify
+# which produces the target/*-app.jar application jar, target/classpath.txt and the
+# target/hitunes.jsa archive. The classpath below must match the training run in pom.xml exactly,
+# relative paths included, or the JVM rejects the archive.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+runs="${1:-5}"
+archive="target/hitunes.jsa"
+app_jars=(target/*-app.jar)
+
+if [[ ! -f "$archive" || ! -f "${app_jars[0]}" ]]; then
+  echo "Missing $archive or application jar, run ./mvnw -Pstartup verify first" >&2
+  exit 1
+fi
+
+classpath="${app_jars[0]}:$(cat target/classpath.txt)"
+
+measure() {
+  local label="$1"
+  shift
+
+  local total_ms=0 total_kb=0
+  for ((i = 1; i <= runs; i++)); do
+    local out
+    out=$(/usr/bin/time -f "rss-kb=%M" "$@" 2>&1)
+
+    local ms kb
+    ms=$(grep -o 'time-to-first-query-ms=[0-9]*' <<<"$out" | cut -d= -f2)
+    kb=$(grep -o 'rss-kb=[0-9]*' <<<"$out" | cut -d= -f2)
+    total_ms=$((total_ms + ms))
+    total_kb=$((total_kb + kb))
+  done
+
+  printf "%-10s time-to-first-query %6d ms   rss %7d KB   (mean of %d runs)\n" \
+    "$label" $((total_ms / runs)) $((total_kb / runs)) "$runs"
+}
+
+measure default \
+  java -cp "$classpath" com.hitunes.HiTunesApp \
+  --spring.main.web-application-type=none --hitunes.startup.report=true
+
+measure optimized \
+  java -XX:SharedArchiveFile="$archive" -Dspring.aot.enabled=true -cp "$classpath" \
+  com.hitunes.HiTunesApp --spring.profiles.active=startup --hitunes.startup.report=true
@@ -0,0 +1,12 @@
+package com.hitunes.models;
+
+public record BulkheadMetrics(
+    String name,
+    int maxConcurrent,
+    int maxQueued,
+    int active,
+    int queued,
+    long accepted,
+    long rejected,
+    long queryTimeouts) {}
+;
@@ -0,0 +1,43 @@
+package com.hitunes.models;
+
+import java.util.*;
+
+/**
+ * The fields of a {@link Customer} record and the customer table columns they are read from.
+ *
+ * <p>Used to fetch only a subset of the fields, for example ids and names for list views. Fields
+ * that are not fetched are null in the resulting Customer record.
+ */
+public enum CustomerField {
+  ID("customer_id"),
+  PHONE_NUMBER("phone"),
+  POSTAL_CODE("postal_code"),
+  ADDRESS("address"),
+  COUNTRY("country"),
+  FIRST_NAME("first_name"),
+  LAST_NAME("last_name"),
+  EMAIL("email");
+
+  /** Every field of the Customer record. */
+  public static final Set<CustomerField> ALL =
+      Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+  /** The id and the full name, enough for list views. */
+  public static final Set<CustomerField> SUMMARY =
+      Collections.unmodifiableSet(EnumSet.of(ID, FIRST_NAME, LAST_NAME));
+
+  private final String column;
+
+  CustomerField(String column) {
+    this.column = column;
+  }
+
+  /**
+   * Returns the name of the customer table column the field is read from.
+   *
+   * @return a column name
+   */
+  public String column() {
+    return column;
+  }
+}
@@ -0,0 +1,6 @@
+package com.hitunes.models;
+
+import java.math.BigDecimal;
+
+public record InvoiceTotal(int invoiceId, int customerId, BigDecimal total) {}
+;
@@ -0,0 +1,6 @@
+package com.hitunes.models;
+
+import java.math.BigDecimal;
+
+public record LeaderboardEntry(int rank, Customer customer, BigDecimal amountSpent) {}
+;
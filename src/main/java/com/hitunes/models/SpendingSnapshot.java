@@ -0,0 +1,7 @@
+package com.hitunes.models;
+
+import java.util.List;
+import java.util.Set;
+
+public record SpendingSnapshot(List<CustomerSpending> customers, Set<Integer> invoiceIds) {}
+;
@@ -3,6 +3,7 @@ package com.hitunes.repositories;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.springframework.data.repository.Repository;
 
 /**
@@ -29,6 +30,15 @@ public interface CrudRepo<T, U> extends Repository<T, U> {
    */
   List<T> getAll() throws SQLException;
 
+  /**
+   * Passes every instance of the type to the action as it is read, without collecting them in a
+   * list first.
+   *
+   * @param action called once for every entry
+   * @throws SQLException if there is an error with the database request.
+   */
+  void streamAll(Consumer<T> action) throws SQLException;
+
   /**
    * Inserts a new entry of the entity in the database.
    *
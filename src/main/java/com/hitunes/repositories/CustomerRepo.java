@@ -50,6 +50,31 @@ public interface CustomerRepo extends CrudRepo<Customer, Integer> {
    */
   CustomerPage getPage(int offset, int limit) throws SQLException;
 
+  /**
+   * Retrieves a set amount of {@link Customer} entries with only the given fields and returns them
+   * in a list. Fields that are not requested are null.
+   *
+   * <p>Ordered by last_name.
+   *
+   * @param offset at what index to begin fetching customers
+   * @param limit how many customers to fetch
+   * @param fields the fields to fetch, for example {@link CustomerField#SUMMARY} for list views
+   * @return an object containaing a list of Customer entries from the database, as well as the
+   *     offset and limit.
+   * @throws SQLException if there is an error with the database request.
+   */
+  CustomerPage getPage(int offset, int limit, Set<CustomerField> fields) throws SQLException;
+
+  /**
+   * Returns all {@link Customer} entries with only the given fields in a list. Fields that are not
+   * requested are null.
+   *
+   * @param fields the fields to fetch, for example {@link CustomerField#SUMMARY} for list views
+   * @return all entries
+   * @throws SQLException if there is an error with the database request.
+   */
+  List<Customer> getAll(Set<CustomerField> fields) throws SQLException;
+
   /**
    * Calculates the {@link Customer} entitity with the highest spending and returns it.
    *
@@ -59,6 +84,27 @@ public interface CustomerRepo extends CrudRepo<Customer, Integer> {
    */
   TopSpender getTopSpender() throws SQLException;
 
+  /**
+   * Calculates the total amount spent by every {@link Customer} and returns them together with the
+   * ids of the invoices included in the totals.
+   *
+   * <p>Customers without invoices are included with an amount of zero.
+   *
+   * @return an object containing a list of Customer entries paired with the sum of their invoice
+   *     totals, and the ids of every invoice counted.
+   * @throws SQLException if there is an error with the database request.
+   */
+  SpendingSnapshot getSpendingSnapshot() throws SQLException;
+
+  /**
+   * Retrieves every invoice with an id at or above the given one, ordered by id.
+   *
+   * @param invoiceId the lowest invoice id to return
+   * @return a list of invoice totals with their customer ids
+   * @throws SQLException if there is an error with the database request.
+   */
+  List<InvoiceTotal> getInvoicesFrom(int invoiceId) throws SQLException;
+
   /**
    * Calculates the most popular genre(s) from a given {@link Customer} entity and returns them.
    *
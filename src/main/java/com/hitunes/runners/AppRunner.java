@@ -1,185 +1,150 @@
 package com.hitunes.runners;
 
-import com.hitunes.models.Customer;
-import com.hitunes.repositories.CustomerRepo;
-import java.sql.SQLException;
+import com.hitunes.services.QueryGuard;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
+/**
+ * Batch runner for jobs given as {@code --job=<spec>} options, see {@link BatchJobFactory} for the
+ * available jobs.
+ *
+ * <p>Jobs that only read run in parallel on a fixed pool of hitunes.batch.parallelism threads,
+ * capped at {@link QueryGuard#maxConcurrentCalls()} so the batch never sheds its own jobs.
+ * Exclusive jobs, which write or measure the database, act as a barrier: they start once all
+ * jobs before them have finished, and jobs after them wait for them to finish. Output is streamed
+ * line by line, prefixed with the job, and a timing summary and the {@link QueryGuard} bulkhead
+ * counters are printed at the end.
+ *
+ * <p>Example: {@code --job=top-country --job=page:10,2 --job=export:customers.csv}
+ */
 @Component
 public class AppRunner implements ApplicationRunner {
-  private final CustomerRepo customerRepo;
-
-  public AppRunner(CustomerRepo customerRepo) {
-    this.customerRepo = customerRepo;
+  private static final String DEFAULT_JOB = "top-country";
+
+  private final BatchJobFactory jobFactory;
+  private final QueryGuard queryGuard;
+  private final int parallelism;
+  private final boolean reportStartup;
+  private final AtomicBoolean firstQueryDone = new AtomicBoolean();
+
+  private record JobResult(String name, boolean succeeded, long millis) {}
+
+  public AppRunner(
+      BatchJobFactory jobFactory,
+      QueryGuard queryGuard,
+      @Value("${hitunes.batch.parallelism:4}") int parallelism,
+      @Value("${hitunes.startup.report:false}") boolean reportStartup) {
+    this.jobFactory = jobFactory;
+    this.queryGuard = queryGuard;
+    this.parallelism = parallelism;
+    this.reportStartup = reportStartup;
   }
 
   @Override
   public void run(ApplicationArguments args) throws Exception {
 
-    Customer punk =
-        new Customer(
-            65,
-            "0118999811999119",
-            "12345",
-            "Address",
-            "Country",
-            "Crafty",
-            "Punk",
-            "daft@punk.no");
-
-    printTopCountry();
-    // printAllCustomers();
-    // printTopSpender();
-    // printTopGenre(2);
-    // printCustomersByName("Luís", "Gonçalves");
-    // printCustomersByIds(List.of(1, 2, 3));
-    // printCustomerPage(10, 2);
-    // createNewCustomer(punk);
-    // updateCustomer(punk);
-    // printCustomerById(65);
-  }
+    var specs = args.containsOption("job") ? args.getOptionValues("job") : List.of(DEFAULT_JOB);
 
-  /**
-   * Prints a page of {@link Customer} entries from the database.
-   *
-   * <p>Ordered by last_name.
-   *
-   * @param offset integer representing depth offset
-   * @param limit integer representing amount of customers to fetch
-   */
-  private void printCustomerPage(int offset, int limit) {
-    try {
-      var customerPage = customerRepo.getPage(offset, limit);
-      System.out.println(customerPage);
+    // Parse every job up front so a typo fails the batch before anything runs.
+    var jobs = specs.stream().map(jobFactory::create).toList();
 
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
-  }
+    var threads = Math.min(Math.min(parallelism, queryGuard.maxConcurrentCalls()), jobs.size());
+    var executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    List<Future<JobResult>> futures = new ArrayList<>();
 
-  /**
-   * Search for customers by name.
-   *
-   * <p>Prints a list of {@link Customer} entries from the database.
-   *
-   * @param firstName string
-   * @param lastName string
-   */
-  private void printCustomersByName(String firstName, String lastName) {
     try {
-      var customersByName = customerRepo.getByName(firstName, lastName);
-      System.out.println(customersByName);
+      for (var job : jobs) {
+        if (job.exclusive()) await(futures);
 
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
-  }
+        futures.add(executor.submit(() -> execute(job)));
 
-  /**
-   * Prints a list of {@link Customer} entries from the database.
-   *
-   * @param ids list of {@link Customer} IDs (integers)
-   */
-  private void printCustomersByIds(List<Integer> ids) {
-    try {
+        if (job.exclusive()) await(futures);
+      }
 
-      var customersByIds = customerRepo.getByIds(ids);
-      System.out.println(customersByIds);
+      await(futures);
 
-    } catch (SQLException e) {
-      e.printStackTrace();
+    } finally {
+      executor.shutdown();
     }
-  }
 
-  /** Prints all the {@link Customer} entries from the database. */
-  private void printAllCustomers() {
-    try {
-      var customers = customerRepo.getAll();
-      System.out.println(customers);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
-  }
+    List<JobResult> results = new ArrayList<>();
+    for (var future : futures) results.add(future.get());
 
-  /** Prints the {@link Customer} that is the top spender. */
-  private void printTopSpender() {
-    try {
-      var topSpender = customerRepo.getTopSpender();
-      System.out.println(topSpender);
+    printTimings(results);
 
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
-  }
-
-  /** Prints the country with the most customers. */
-  private void printTopCountry() {
-    try {
-      var topCountry = customerRepo.getCountryWithMostCustomers();
-      System.out.println(topCountry);
-
-    } catch (SQLException e) {
-      e.printStackTrace();
+    var failed = results.stream().filter(result -> !result.succeeded()).count();
+    if (failed > 0) {
+      throw new IllegalStateException(failed + " of " + results.size() + " jobs failed");
     }
   }
 
   /**
-   * Prints a {@Customer} entry from the database.
+   * Runs a job and measures it. Failures are printed and recorded instead of thrown, so the
+   * remaining jobs still run.
    *
-   * @param customerId a valid customer id (integer)
+   * @param job the job to run
+   * @return the outcome and duration of the job
    */
-  private void printCustomerById(int customerId) {
+  private JobResult execute(BatchJob job) {
+    var prefix = "[" + job.name() + "] ";
+    var start = System.nanoTime();
+    var succeeded = false;
+
     try {
-      Optional<Customer> customer = customerRepo.getById(customerId);
-      System.out.println(customer.orElseThrow());
+      job.task().run(line -> System.out.println(prefix + line));
+      succeeded = true;
 
-    } catch (SQLException e) {
-      e.printStackTrace();
-    } catch (NoSuchElementException e) {
+    } catch (Exception e) {
+      System.err.println(prefix + "failed");
       e.printStackTrace();
     }
+
+    var millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    if (succeeded) printTimeToFirstQuery();
+
+    return new JobResult(job.name(), succeeded, millis);
   }
 
-  /**
-   * Inserts a new customer into the database.
-   *
-   * @param customer a {@link Customer} record
-   */
-  private void createNewCustomer(Customer customer) {
-    try {
-      customerRepo.createNew(customer);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
+  private static void await(List<Future<JobResult>> futures) throws Exception {
+    for (var future : futures) future.get();
   }
 
   /**
-   * Updates a {@link Customer} in the database by overwriting it.
+   * Prints the name, status and duration of every job, followed by the bulkhead counters.
    *
-   * @param customer a {@link Customer} record containing a valid ID.
+   * @param results the results in the order the jobs were given
    */
-  private void updateCustomer(Customer customer) {
-    try {
-      customerRepo.update(customer);
-    } catch (SQLException e) {
-      e.printStackTrace();
+  private void printTimings(List<JobResult> results) {
+    System.out.println();
+    System.out.println(String.format("%-40s %-8s %10s", "Job", "Status", "Time"));
+
+    for (var result : results) {
+      System.out.println(
+          String.format(
+              "%-40s %-8s %7d ms",
+              result.name(), result.succeeded() ? "OK" : "FAILED", result.millis()));
     }
+
+    System.out.println();
+    queryGuard.metrics().forEach(System.out::println);
   }
 
   /**
-   * Prints the top genre for a given customer.
+   * Prints the JVM uptime once the first job has completed, when hitunes.startup.report is set.
    *
-   * @param id a valid {@link Customer} ID (integer)
+   * <p>Read by scripts/startup-benchmark.sh.
    */
-  private void printTopGenre(int id) {
-    try {
-      var topGenre = customerRepo.getMostPopularGenreFromOne(id);
-      System.out.println(topGenre);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
+  private void printTimeToFirstQuery() {
+    if (!reportStartup || !firstQueryDone.compareAndSet(false, true)) return;
+
+    var uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+    System.out.println("time-to-first-query-ms=" + uptime);
   }
 }
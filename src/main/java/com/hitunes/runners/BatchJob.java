@@ -0,0 +1,21 @@
+package com.hitunes.runners;
+
+import java.util.function.Consumer;
+
+/**
+ * A single unit of work for the batch runner.
+ *
+ * <p>Exclusive jobs, those that write to the database or measure it, are run on their own. Other
+ * jobs only read and may run in parallel with each other.
+ *
+ * @param name the job specification as given on the command line
+ * @param exclusive whether the job must not run alongside other jobs
+ * @param task the work to run, writing its output line by line
+ */
+record BatchJob(String name, boolean exclusive, Task task) {
+
+  @FunctionalInterface
+  interface Task {
+    void run(Consumer<String> out) throws Exception;
+  }
+}
@@ -0,0 +1,250 @@
+package com.hitunes.runners;
+
+import com.hitunes.models.CustomerField;
+import com.hitunes.repositories.CustomerRepo;
+import com.hitunes.services.FetchBenchmark;
+import com.hitunes.services.SpendingLeaderboard;
+import java.io.*;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates {@link BatchJob} instances from command line specifications.
+ *
+ * <p>A specification is a job name, optionally followed by a colon and comma separated
+ * parameters:
+ *
+ * <ul>
+ *   <li>{@code customers} all customers
+ *   <li>{@code customer-names} ids and names of all customers
+ *   <li>{@code customer:<id>} a single customer
+ *   <li>{@code customers-by-ids:<id>,<id>,...} several customers
+ *   <li>{@code customers-by-name:<firstName>,<lastName>} customers matching a full name
+ *   <li>{@code page:<offset>,<limit>} a page of customers ordered by last name
+ *   <li>{@code top-spender} the customer with the highest spending
+ *   <li>{@code top-genre:<id>} the most popular genre(s) of a customer
+ *   <li>{@code top-country} the country with the most customers
+ *   <li>{@code leaderboard:<limit>[,<country>]} the top spenders, optionally of one country
+ *   <li>{@code rank:<id>} the global and country rank and the spending percentile of a customer
+ *   <li>{@code export:<file>} writes all customers to a CSV file
+ *   <li>{@code import:<file>} inserts all customers from a CSV file
+ *   <li>{@code fetch-benchmark:<rounds>} compares select * against column projections
+ *   <li>{@code load-test} drives production-like traffic until saturation, see {@link
+ *       LoadGenerator}
+ * </ul>
+ *
+ * <p>The leaderboard and rank jobs first apply invoices added since the leaderboard was loaded, see
+ * {@link SpendingLeaderboard#syncInvoices()}.
+ */
+@Component
+public class BatchJobFactory {
+  private final CustomerRepo customerRepo;
+  private final SpendingLeaderboard leaderboard;
+  private final FetchBenchmark fetchBenchmark;
+  private final LoadGenerator loadGenerator;
+
+  public BatchJobFactory(
+      CustomerRepo customerRepo,
+      SpendingLeaderboard leaderboard,
+      FetchBenchmark fetchBenchmark,
+      LoadGenerator loadGenerator) {
+    this.customerRepo = customerRepo;
+    this.leaderboard = leaderboard;
+    this.fetchBenchmark = fetchBenchmark;
+    this.loadGenerator = loadGenerator;
+  }
+
+  /**
+   * Parses a job specification. Parameters are validated here, before any job runs.
+   *
+   * @param spec a job specification such as {@code page:10,2}
+   * @return the job
+   * @throws IllegalArgumentException if the job is unknown or its parameters are invalid
+   */
+  BatchJob create(String spec) {
+    var separator = spec.indexOf(':');
+    var name = separator < 0 ? spec : spec.substring(0, separator);
+    var params =
+        separator < 0 ? List.<String>of() : List.of(spec.substring(separator + 1).split(","));
+
+    return switch (name) {
+      case "customers" -> read(spec, out -> customerRepo.streamAll(c -> out.accept(c.toString())));
+
+      case "customer-names" ->
+          read(
+              spec,
+              out ->
+                  customerRepo
+                      .getAll(CustomerField.SUMMARY)
+                      .forEach(c -> out.accept(c.toString())));
+
+      case "customer" -> {
+        var id = intParam(spec, params, 0);
+        yield read(spec, out -> out.accept(customerRepo.getById(id).orElseThrow().toString()));
+      }
+
+      case "customers-by-ids" -> {
+        // At least one id, an empty list would send "in ()" to the database.
+        List<Integer> ids = new ArrayList<>(List.of(intParam(spec, params, 0)));
+        for (var i = 1; i < params.size(); i++) ids.add(intParam(spec, params, i));
+        yield read(spec, out -> customerRepo.getByIds(ids).forEach(c -> out.accept(c.toString())));
+      }
+
+      case "customers-by-name" -> {
+        var firstName = param(spec, params, 0);
+        var lastName = param(spec, params, 1);
+        yield read(
+            spec,
+            out ->
+                customerRepo
+                    .getByName(firstName, lastName)
+                    .forEach(c -> out.accept(c.toString())));
+      }
+
+      case "page" -> {
+        var offset = intParam(spec, params, 0);
+        var limit = intParam(spec, params, 1);
+        yield read(
+            spec,
+            out ->
+                customerRepo
+                    .getPage(offset, limit)
+                    .customers()
+                    .forEach(c -> out.accept(c.toString())));
+      }
+
+      case "top-spender" -> read(spec, out -> out.accept(customerRepo.getTopSpender().toString()));
+
+      case "top-genre" -> {
+        var id = intParam(spec, params, 0);
+        yield read(spec, out -> out.accept(customerRepo.getMostPopularGenreFromOne(id).toString()));
+      }
+
+      case "top-country" ->
+          read(spec, out -> out.accept(customerRepo.getCountryWithMostCustomers().toString()));
+
+      case "leaderboard" -> {
+        var limit = intParam(spec, params, 0);
+        var country = params.size() > 1 ? param(spec, params, 1) : null;
+        yield read(
+            spec,
+            out -> {
+              syncLeaderboard(out);
+
+              var entries =
+                  country == null
+                      ? leaderboard.getTopSpenders(limit)
+                      : leaderboard.getTopSpenders(country, limit);
+              entries.forEach(e -> out.accept(e.toString()));
+            });
+      }
+
+      case "rank" -> {
+        var id = intParam(spec, params, 0);
+        yield read(
+            spec,
+            out -> {
+              syncLeaderboard(out);
+
+              out.accept("global " + leaderboard.getRank(id).orElseThrow());
+              out.accept("country " + leaderboard.getCountryRank(id).orElseThrow());
+              out.accept(
+                  String.format(
+                      "spent more than %.1f%% of customers",
+                      leaderboard.getPercentile(id).orElseThrow()));
+            });
+      }
+
+      case "export" -> {
+        var file = Path.of(param(spec, params, 0));
+        yield read(spec, out -> exportCustomers(file, out));
+      }
+
+      case "import" -> {
+        var file = Path.of(param(spec, params, 0));
+        yield exclusive(spec, out -> importCustomers(file, out));
+      }
+
+      case "fetch-benchmark" -> {
+        var rounds = intParam(spec, params, 0);
+        yield exclusive(spec, out -> fetchBenchmark.run(rounds, out));
+      }
+
+      case "load-test" -> exclusive(spec, loadGenerator::run);
+
+      default -> throw new IllegalArgumentException("Unknown job: " + spec);
+    };
+  }
+
+  private void exportCustomers(Path file, Consumer<String> out) throws Exception {
+    var count = new int[1];
+
+    try (var writer = Files.newBufferedWriter(file)) {
+      writer.write(CustomerCsv.HEADER);
+      writer.newLine();
+
+      customerRepo.streamAll(
+          customer -> {
+            try {
+              writer.write(CustomerCsv.format(customer));
+              writer.newLine();
+              count[0]++;
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    }
+
+    out.accept("Exported " + count[0] + " customers to " + file);
+  }
+
+  private void importCustomers(Path file, Consumer<String> out) throws Exception {
+    var count = 0;
+
+    try (var reader = Files.newBufferedReader(file)) {
+      reader.readLine();
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) continue;
+
+        customerRepo.createNew(CustomerCsv.parse(line));
+        count++;
+      }
+    }
+
+    out.accept("Imported " + count + " customers from " + file);
+  }
+
+  private void syncLeaderboard(Consumer<String> out) throws SQLException {
+    var applied = leaderboard.syncInvoices();
+    if (applied > 0) out.accept("Applied " + applied + " new invoices");
+  }
+
+  private static BatchJob read(String spec, BatchJob.Task task) {
+    return new BatchJob(spec, false, task);
+  }
+
+  private static BatchJob exclusive(String spec, BatchJob.Task task) {
+    return new BatchJob(spec, true, task);
+  }
+
+  private static String param(String spec, List<String> params, int index) {
+    if (index >= params.size() || params.get(index).isBlank()) {
+      throw new IllegalArgumentException("Missing parameter " + (index + 1) + " for job: " + spec);
+    }
+
+    return params.get(index).trim();
+  }
+
+  private static int intParam(String spec, List<String> params, int index) {
+    try {
+      return Integer.parseInt(param(spec, params, index));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Parameter " + (index + 1) + " is not a number: " + spec);
+    }
+  }
+}
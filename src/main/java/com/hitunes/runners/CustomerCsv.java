@@ -0,0 +1,111 @@
+package com.hitunes.runners;
+
+import com.hitunes.models.Customer;
+import java.util.*;
+
+/**
+ * Converts {@link Customer} records to and from CSV lines for the export and import batch jobs.
+ *
+ * <p>Fields containing commas or quotes are quoted, quotes inside fields are doubled. Null fields
+ * are left empty and empty strings are written as {@code ""}, so both survive a round trip. Line
+ * breaks inside fields are not supported.
+ */
+final class CustomerCsv {
+  static final String HEADER =
+      "customer_id,first_name,last_name,phone,postal_code,address,country,email";
+
+  private static final int FIELD_COUNT = 8;
+
+  private CustomerCsv() {}
+
+  /**
+   * Formats a {@link Customer} as a CSV line, in the column order of {@link #HEADER}.
+   *
+   * @param customer a Customer record
+   * @return a CSV line without a line break
+   */
+  static String format(Customer customer) {
+    return String.join(
+        ",",
+        String.valueOf(customer.customerId()),
+        quote(customer.firstName()),
+        quote(customer.lastName()),
+        quote(customer.phoneNumber()),
+        quote(customer.postalCode()),
+        quote(customer.address()),
+        quote(customer.country()),
+        quote(customer.email()));
+  }
+
+  /**
+   * Parses a CSV line in the column order of {@link #HEADER}. Empty fields become null, quoted
+   * empty fields become empty strings.
+   *
+   * @param line a CSV line without a line break
+   * @return a Customer record
+   * @throws IllegalArgumentException if the line does not contain exactly eight fields
+   */
+  static Customer parse(String line) {
+    var fields = split(line);
+
+    if (fields.size() != FIELD_COUNT) {
+      throw new IllegalArgumentException(
+          "Expected " + FIELD_COUNT + " fields but got " + fields.size() + ": " + line);
+    }
+
+    var customerId = fields.get(0) == null ? 0 : Integer.parseInt(fields.get(0));
+
+    return new Customer(
+        customerId,
+        fields.get(3),
+        fields.get(4),
+        fields.get(5),
+        fields.get(6),
+        fields.get(1),
+        fields.get(2),
+        fields.get(7));
+  }
+
+  private static String quote(String field) {
+    if (field == null) return "";
+
+    if (!field.isEmpty() && field.indexOf(',') < 0 && field.indexOf('"') < 0) return field;
+
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+
+  private static List<String> split(String line) {
+    List<String> fields = new ArrayList<>(FIELD_COUNT);
+    var field = new StringBuilder();
+    var quoted = false;
+    var wasQuoted = false;
+
+    for (var i = 0; i < line.length(); i++) {
+      var c = line.charAt(i);
+
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+        wasQuoted = true;
+      } else if (c == ',') {
+        fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+        field.setLength(0);
+        wasQuoted = false;
+      } else {
+        field.append(c);
+      }
+    }
+
+    fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+
+    return fields;
+  }
+}
@@ -0,0 +1,280 @@
+package com.hitunes.runners;
+
+import com.hitunes.models.Customer;
+import com.hitunes.repositories.CustomerRepo;
+import com.hitunes.services.BulkheadFullException;
+import com.hitunes.services.QueryGuard;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Open-loop load generator that drives a production-like mix of {@link LoadOperation}s against
+ * the {@link CustomerRepo}.
+ *
+ * <p>Requests are issued at a fixed arrival rate regardless of how fast earlier requests complete,
+ * and latency is measured from the time a request was scheduled to start. Queueing delay is
+ * therefore included once the workers fall behind, instead of the generator silently slowing
+ * down.
+ *
+ * <p>The rate is stepped through hitunes.load.rates, each step lasting hitunes.load.step-seconds
+ * and served by hitunes.load.concurrency workers. The first step whose successful throughput
+ * falls below 95% of the target, whose p99 exceeds hitunes.load.slo-p99-ms, or whose share of
+ * failed and shed calls exceeds hitunes.load.max-error-ratio, is reported as the saturation point
+ * and ends the test.
+ *
+ * <p>Only successful calls are recorded in the latency histograms. Calls shed by a bulkhead fail
+ * fast, so counting them would make an overloaded system look faster. Shed calls and other errors
+ * are counted separately instead.
+ *
+ * <p>Every step also reports the cumulative {@link QueryGuard} bulkhead counters, so shed calls
+ * and query timeouts show up next to the latencies.
+ *
+ * <p>Writes update customers with their current values, so the data is left unchanged.
+ */
+@Component
+public class LoadGenerator {
+  private static final int PAGE_SIZE = 20;
+  private static final double MIN_ACHIEVED_RATIO = 0.95;
+
+  private final CustomerRepo customerRepo;
+  private final QueryGuard queryGuard;
+  private final int concurrency;
+  private final int[] rates;
+  private final int stepSeconds;
+  private final long sloP99Millis;
+  private final double maxErrorRatio;
+
+  record StepResult(
+      int targetRate,
+      long requests,
+      double achievedRate,
+      Map<LoadOperation, Histogram> latencies,
+      Map<LoadOperation, LongAdder> errors,
+      Map<LoadOperation, LongAdder> shed,
+      Histogram total) {
+
+    long errorCount() {
+      return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long shedCount() {
+      return shed.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    double errorRatio() {
+      return (double) (errorCount() + shedCount()) / requests;
+    }
+
+    boolean saturated(long sloP99Millis, double maxErrorRatio) {
+      return achievedRate < targetRate * MIN_ACHIEVED_RATIO
+          || total.getValueAtPercentile(99) > TimeUnit.MILLISECONDS.toMicros(sloP99Millis)
+          || errorRatio() > maxErrorRatio;
+    }
+  }
+
+  public LoadGenerator(
+      CustomerRepo customerRepo,
+      QueryGuard queryGuard,
+      @Value("${hitunes.load.concurrency:16}") int concurrency,
+      @Value("${hitunes.load.rates:50,100,200,400,800}") int[] rates,
+      @Value("${hitunes.load.step-seconds:30}") int stepSeconds,
+      @Value("${hitunes.load.slo-p99-ms:50}") long sloP99Millis,
+      @Value("${hitunes.load.max-error-ratio:0.01}") double maxErrorRatio) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("hitunes.load.concurrency must be at least 1");
+    }
+    if (rates.length == 0 || Arrays.stream(rates).anyMatch(rate -> rate < 1)) {
+      throw new IllegalArgumentException("hitunes.load.rates must be one or more positive rates");
+    }
+    if (stepSeconds < 1) {
+      throw new IllegalArgumentException("hitunes.load.step-seconds must be at least 1");
+    }
+    if (sloP99Millis < 1) {
+      throw new IllegalArgumentException("hitunes.load.slo-p99-ms must be at least 1");
+    }
+    if (maxErrorRatio < 0 || maxErrorRatio > 1) {
+      throw new IllegalArgumentException("hitunes.load.max-error-ratio must be between 0 and 1");
+    }
+
+    this.customerRepo = customerRepo;
+    this.queryGuard = queryGuard;
+    this.concurrency = concurrency;
+    this.rates = rates;
+    this.stepSeconds = stepSeconds;
+    this.sloP99Millis = sloP99Millis;
+    this.maxErrorRatio = maxErrorRatio;
+  }
+
+  /**
+   * Runs every rate step until the system saturates and writes the latency report.
+   *
+   * @param out receives the report lines
+   * @throws Exception if the customers to run against cannot be loaded or the run is interrupted
+   */
+  public void run(Consumer<String> out) throws Exception {
+    var customers = customerRepo.getAll();
+
+    if (customers.isEmpty()) throw new IllegalStateException("No customers to run against");
+
+    out.accept(
+        String.format(
+            "%d workers, %d s per step, p99 objective %d ms, max error ratio %.2f%%, %d customers",
+            concurrency, stepSeconds, sloP99Millis, maxErrorRatio * 100, customers.size()));
+
+    for (var rate : rates) {
+      var step = runStep(rate, customers);
+      report(step, out);
+
+      if (step.saturated(sloP99Millis, maxErrorRatio)) {
+        out.accept("Saturated at " + rate + " req/s");
+        return;
+      }
+    }
+
+    out.accept("Not saturated up to " + rates[rates.length - 1] + " req/s");
+  }
+
+  private StepResult runStep(int rate, List<Customer> customers) throws InterruptedException {
+    Map<LoadOperation, Histogram> latencies = new EnumMap<>(LoadOperation.class);
+    Map<LoadOperation, LongAdder> errors = new EnumMap<>(LoadOperation.class);
+    Map<LoadOperation, LongAdder> shed = new EnumMap<>(LoadOperation.class);
+
+    for (var operation : LoadOperation.values()) {
+      latencies.put(operation, new ConcurrentHistogram(3));
+      errors.put(operation, new LongAdder());
+      shed.put(operation, new LongAdder());
+    }
+
+    var executor = Executors.newFixedThreadPool(concurrency);
+    var random = ThreadLocalRandom.current();
+    var intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    var requests = (long) rate * stepSeconds;
+    var start = System.nanoTime();
+    var lastCompletion = new AtomicLong(start);
+
+    for (var i = 0L; i < requests; i++) {
+      var scheduled = start + i * intervalNanos;
+
+      long delay;
+      while ((delay = scheduled - System.nanoTime()) > 0) LockSupport.parkNanos(delay);
+
+      var operation = LoadOperation.pick(random.nextInt(100));
+
+      executor.execute(
+          () -> {
+            try {
+              execute(operation, customers);
+
+              var latency = System.nanoTime() - scheduled;
+              latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latency));
+
+            } catch (BulkheadFullException e) {
+              shed.get(operation).increment();
+
+            } catch (Exception e) {
+              errors.get(operation).increment();
+            }
+
+            lastCompletion.accumulateAndGet(System.nanoTime(), Math::max);
+          });
+    }
+
+    executor.shutdown();
+
+    if (!executor.awaitTermination(1, TimeUnit.HOURS)) {
+      executor.shutdownNow();
+      throw new IllegalStateException("Step at " + rate + " req/s did not finish within an hour");
+    }
+
+    var total = new Histogram(3);
+    latencies.values().forEach(total::add);
+
+    var seconds = (lastCompletion.get() - start) / 1e9;
+
+    return new StepResult(
+        rate, requests, total.getTotalCount() / seconds, latencies, errors, shed, total);
+  }
+
+  private void execute(LoadOperation operation, List<Customer> customers) throws Exception {
+    var random = ThreadLocalRandom.current();
+    var customer = customers.get(random.nextInt(customers.size()));
+
+    switch (operation) {
+      case GET_BY_ID -> customerRepo.getById(customer.customerId());
+
+      case GET_BY_IDS -> {
+        List<Integer> ids = new ArrayList<>();
+        for (var i = random.nextInt(2, 11); i > 0; i--) {
+          ids.add(customers.get(random.nextInt(customers.size())).customerId());
+        }
+        customerRepo.getByIds(ids);
+      }
+
+      case GET_PAGE -> customerRepo.getPage(random.nextInt(customers.size()), PAGE_SIZE);
+
+      case ANALYTICS -> {
+        switch (random.nextInt(3)) {
+          case 0 -> customerRepo.getTopSpender();
+          case 1 -> customerRepo.getCountryWithMostCustomers();
+          default -> customerRepo.getMostPopularGenreFromOne(customer.customerId());
+        }
+      }
+
+      case WRITE -> customerRepo.update(customer);
+    }
+  }
+
+  private void report(StepResult step, Consumer<String> out) {
+    out.accept("");
+    out.accept(
+        String.format(
+            "Target %d req/s, achieved %.1f successful req/s, %.2f%% failed or shed",
+            step.targetRate(), step.achievedRate(), step.errorRatio() * 100));
+    out.accept(
+        String.format(
+            "%-12s %8s %8s %8s %9s %9s %9s %9s %9s",
+            "Operation",
+            "OK",
+            "Errors",
+            "Shed",
+            "p50 ms",
+            "p90 ms",
+            "p99 ms",
+            "p99.9 ms",
+            "max ms"));
+
+    for (var operation : LoadOperation.values()) {
+      out.accept(
+          formatRow(
+              operation.name(),
+              step.latencies().get(operation),
+              step.errors().get(operation).sum(),
+              step.shed().get(operation).sum()));
+    }
+
+    out.accept(formatRow("TOTAL", step.total(), step.errorCount(), step.shedCount()));
+
+    queryGuard.metrics().forEach(metrics -> out.accept(metrics.toString()));
+  }
+
+  private static String formatRow(String name, Histogram latencies, long errors, long shed) {
+    return String.format(
+        "%-12s %8d %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f",
+        name,
+        latencies.getTotalCount(),
+        errors,
+        shed,
+        latencies.getValueAtPercentile(50) / 1000.0,
+        latencies.getValueAtPercentile(90) / 1000.0,
+        latencies.getValueAtPercentile(99) / 1000.0,
+        latencies.getValueAtPercentile(99.9) / 1000.0,
+        latencies.getMaxValue() / 1000.0);
+  }
+}
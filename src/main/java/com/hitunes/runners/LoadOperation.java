@@ -0,0 +1,37 @@
+package com.hitunes.runners;
+
+/**
+ * The kinds of calls the {@link LoadGenerator} makes against the customer repository, weighted
+ * like production traffic.
+ */
+enum LoadOperation {
+  GET_BY_ID(60),
+  GET_BY_IDS(20),
+  GET_PAGE(10),
+  ANALYTICS(5),
+  WRITE(5);
+
+  /** Share of the traffic in percent. The weights of all operations add up to 100. */
+  final int weight;
+
+  LoadOperation(int weight) {
+    this.weight = weight;
+  }
+
+  /**
+   * Picks the operation a roll of a hundred-sided die lands on.
+   *
+   * @param roll a number between 0 and 99
+   * @return the operation
+   */
+  static LoadOperation pick(int roll) {
+    if (roll < 0) throw new IllegalArgumentException("Roll out of range: " + roll);
+
+    for (var operation : values()) {
+      if (roll < operation.weight) return operation;
+      roll -= operation.weight;
+    }
+
+    throw new IllegalArgumentException("Roll out of range: " + roll);
+  }
+}
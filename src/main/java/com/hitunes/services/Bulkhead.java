@@ -0,0 +1,112 @@
+package com.hitunes.services;
+
+import com.hitunes.models.BulkheadMetrics;
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Limits how many calls of one {@link Workload} run at the same time.
+ *
+ * <p>Calls beyond the limit wait in a bounded queue for at most a configured time. When the queue
+ * is full, or the wait runs out, the call fails fast with a {@link BulkheadFullException} instead
+ * of piling up behind slow queries.
+ */
+final class Bulkhead {
+  /** SQLState Postgres reports when a statement is cancelled, including by a query timeout. */
+  private static final String QUERY_CANCELED = "57014";
+
+  private final String name;
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final long maxWaitMillis;
+
+  private final Semaphore permits;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder queryTimeouts = new LongAdder();
+
+  @FunctionalInterface
+  interface SqlCall<T> {
+    T call() throws SQLException;
+  }
+
+  Bulkhead(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+    this.maxWaitMillis = maxWaitMillis;
+    this.permits = new Semaphore(maxConcurrent, true);
+  }
+
+  /**
+   * Runs the call once a slot is free.
+   *
+   * @param call the database work
+   * @return the result of the call
+   * @throws BulkheadFullException if the call was shed
+   * @throws SQLException if the call fails
+   */
+  <T> T call(SqlCall<T> call) throws SQLException {
+    acquire();
+
+    try {
+      return call.call();
+
+    } catch (SQLException e) {
+      if (QUERY_CANCELED.equals(e.getSQLState())) queryTimeouts.increment();
+      throw e;
+
+    } finally {
+      permits.release();
+    }
+  }
+
+  BulkheadMetrics metrics() {
+    return new BulkheadMetrics(
+        name,
+        maxConcurrent,
+        maxQueued,
+        maxConcurrent - permits.availablePermits(),
+        queued.get(),
+        accepted.sum(),
+        rejected.sum(),
+        queryTimeouts.sum());
+  }
+
+  private void acquire() throws BulkheadFullException {
+    try {
+      // Unlike tryAcquire(), the timed variant honours fairness, so a new call never takes a slot
+      // ahead of calls already waiting in the queue.
+      if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) enqueue();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw reject("interrupted while waiting");
+    }
+
+    accepted.increment();
+  }
+
+  private void enqueue() throws BulkheadFullException, InterruptedException {
+    if (queued.incrementAndGet() > maxQueued) {
+      queued.decrementAndGet();
+      throw reject("queue is full");
+    }
+
+    try {
+      if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+        throw reject("no slot within " + maxWaitMillis + " ms");
+      }
+
+    } finally {
+      queued.decrementAndGet();
+    }
+  }
+
+  private BulkheadFullException reject(String reason) {
+    rejected.increment();
+    return new BulkheadFullException(name + " bulkhead rejected call: " + reason);
+  }
+}
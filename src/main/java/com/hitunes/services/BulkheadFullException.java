@@ -0,0 +1,17 @@
+package com.hitunes.services;
+
+import java.sql.SQLTransientException;
+
+/**
+ * Thrown when a repository call is shed because its bulkhead has no free slot and its queue is
+ * full, or because it waited longer than allowed for a slot.
+ *
+ * <p>The call never reached the database, so it is safe to retry later.
+ */
+public class BulkheadFullException extends SQLTransientException {
+  private static final long serialVersionUID = 1L;
+
+  public BulkheadFullException(String message) {
+    super(message);
+  }
+}
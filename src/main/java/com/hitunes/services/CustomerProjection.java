@@ -0,0 +1,105 @@
+package com.hitunes.services;
+
+import com.hitunes.models.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An explicit column list for the customer table together with the positions of those columns in
+ * the result set.
+ *
+ * <p>The select list and column indexes are computed once per set of {@link CustomerField}s, so
+ * reading a row is a plain index lookup instead of a column name lookup per field. The customer id
+ * is always selected.
+ */
+final class CustomerProjection {
+  private static final Map<Set<CustomerField>, CustomerProjection> CACHE =
+      new ConcurrentHashMap<>();
+
+  static final CustomerProjection ALL = of(CustomerField.ALL);
+
+  private final EnumSet<CustomerField> fields;
+  private final String columns;
+  private final int[] indexes = new int[CustomerField.values().length];
+
+  private CustomerProjection(EnumSet<CustomerField> fields) {
+    this.fields = fields;
+
+    List<String> columns = new ArrayList<>();
+
+    for (var field : fields) {
+      columns.add(field.column());
+      indexes[field.ordinal()] = columns.size();
+    }
+
+    this.columns = String.join(", ", columns);
+  }
+
+  /**
+   * Returns the projection for a set of fields.
+   *
+   * @param fields the fields to fetch, the id is added if missing
+   * @return a cached projection
+   */
+  static CustomerProjection of(Set<CustomerField> fields) {
+    var withId = EnumSet.of(CustomerField.ID);
+    withId.addAll(fields);
+
+    return CACHE.computeIfAbsent(withId, key -> new CustomerProjection(withId));
+  }
+
+  /**
+   * Returns the select list, such as {@code customer_id, first_name, last_name}.
+   *
+   * @return comma separated column names
+   */
+  String columns() {
+    return columns;
+  }
+
+  /**
+   * Returns the select list with every column qualified by a table alias.
+   *
+   * @param alias the alias of the customer table in the query
+   * @return comma separated, qualified column names
+   */
+  String columns(String alias) {
+    return alias + "." + columns.replace(", ", ", " + alias + ".");
+  }
+
+  /**
+   * Returns the number of selected columns. Columns selected after the projection start at this
+   * index plus one.
+   *
+   * @return the number of columns
+   */
+  int size() {
+    return fields.size();
+  }
+
+  /**
+   * Returns a {@link Customer} record from the current row of a result set whose first columns are
+   * this projection. Fields that are not part of the projection are null.
+   *
+   * @param res a ResultSet positioned on a row
+   * @return a Customer record
+   * @throws SQLException if there is an error retrieving the fields
+   */
+  Customer read(ResultSet res) throws SQLException {
+    return new Customer(
+        res.getInt(indexes[CustomerField.ID.ordinal()]),
+        getString(res, CustomerField.PHONE_NUMBER),
+        getString(res, CustomerField.POSTAL_CODE),
+        getString(res, CustomerField.ADDRESS),
+        getString(res, CustomerField.COUNTRY),
+        getString(res, CustomerField.FIRST_NAME),
+        getString(res, CustomerField.LAST_NAME),
+        getString(res, CustomerField.EMAIL));
+  }
+
+  private String getString(ResultSet res, CustomerField field) throws SQLException {
+    var index = indexes[field.ordinal()];
+    return index == 0 ? null : res.getString(index);
+  }
+}
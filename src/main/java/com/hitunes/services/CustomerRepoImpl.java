@@ -4,11 +4,15 @@ import com.hitunes.models.*;
 import com.hitunes.repositories.CustomerRepo;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class CustomerRepoImpl implements CustomerRepo {
+  /** Rows per round trip when streaming the whole table, see {@link #streamAll(Consumer)}. */
+  private static final int STREAM_FETCH_SIZE = 500;
+
   @Value("${spring.datasource.url}")
   private String url;
 
@@ -18,49 +22,38 @@ public class CustomerRepoImpl implements CustomerRepo {
   @Value("${spring.datasource.password}")
   private String password;
 
+  private final QueryGuard guard;
+
+  public CustomerRepoImpl(QueryGuard guard) {
+    this.guard = guard;
+  }
+
   /**
    * Returns a list of {@link Customer} records from the database.
    *
-   * <p>Expects a PreparedStatement containing a query that returns one or more customers.
+   * <p>Expects a PreparedStatement containing a query whose first columns are the given projection.
    *
    * @param statement a PreparedStatement containing a query that returns one or more customers
+   * @param projection the customer columns selected by the query
    * @return a list of Customer records
    * @throws SQLException if there is an error executing the prepared statement or retrieving the
    *     customers
    */
-  private List<Customer> fetchCustomers(PreparedStatement statement) throws SQLException {
+  private List<Customer> fetchCustomers(PreparedStatement statement, CustomerProjection projection)
+      throws SQLException {
 
     List<Customer> customers = new ArrayList<>();
 
     var res = statement.executeQuery();
 
     while (res.next()) {
-      var customer = fetchCustomer(res);
+      var customer = projection.read(res);
       customers.add(customer);
     }
 
     return customers;
   }
 
-  /**
-   * Returns a {@link Customer} record.
-   *
-   * @param res A ResultSet containing the required fields
-   * @return A Customer record
-   * @throws SQLException If there is an error retrieving the fields
-   */
-  private Customer fetchCustomer(ResultSet res) throws SQLException {
-    return new Customer(
-        res.getInt("customer_id"),
-        res.getString("phone"),
-        res.getString("postal_code"),
-        res.getString("address"),
-        res.getString("country"),
-        res.getString("first_name"),
-        res.getString("last_name"),
-        res.getString("email"));
-  }
-
   /**
    * Establish a connection to the database.
    *
@@ -78,315 +71,514 @@ public class CustomerRepoImpl implements CustomerRepo {
   @Override
   public List<Customer> getByName(String firstName, String lastName) throws SQLException {
 
-    List<Customer> customers = new ArrayList<>();
+    return guard.call(
+        RepoMethod.GET_BY_NAME,
+        prepare -> {
+          List<Customer> customers = new ArrayList<>();
 
-    try (var conn = getConnection()) {
-      var query = "select * from customer where last_name like ? and first_name like ? ";
+          try (var conn = getConnection()) {
+            var query =
+                "select "
+                    + CustomerProjection.ALL.columns()
+                    + " from customer where last_name like ? and first_name like ? ";
 
-      var statement = conn.prepareStatement(query);
-      statement.setString(1, lastName);
-      statement.setString(2, firstName);
+            var statement = prepare.apply(conn, query);
+            statement.setString(1, lastName);
+            statement.setString(2, firstName);
 
-      customers = fetchCustomers(statement);
+            customers = fetchCustomers(statement, CustomerProjection.ALL);
 
-      statement.close();
+            statement.close();
 
-    } catch (Exception e) {
-      throw e;
-    }
+          } catch (Exception e) {
+            throw e;
+          }
 
-    return customers;
+          return customers;
+        });
   }
 
   @Override
   public Optional<Customer> getById(Integer customerId) throws SQLException {
 
-    Customer customer = null;
+    return guard.call(
+        RepoMethod.GET_BY_ID,
+        prepare -> {
+          Customer customer = null;
 
-    try (var conn = getConnection()) {
+          try (var conn = getConnection()) {
 
-      var query = "select * from customer where customer_id = ?";
+            var query =
+                "select "
+                    + CustomerProjection.ALL.columns()
+                    + " from customer where customer_id = ?";
 
-      var statement = conn.prepareStatement(query);
-      statement.setInt(1, customerId);
+            var statement = prepare.apply(conn, query);
+            statement.setInt(1, customerId);
 
-      var res = statement.executeQuery();
+            var res = statement.executeQuery();
 
-      if (res.next()) customer = fetchCustomer(res);
+            if (res.next()) customer = CustomerProjection.ALL.read(res);
 
-      statement.close();
+            statement.close();
 
-    } catch (Exception e) {
-      throw e;
-    }
+          } catch (Exception e) {
+            throw e;
+          }
 
-    return Optional.ofNullable(customer);
+          return Optional.ofNullable(customer);
+        });
   }
 
   @Override
   public CustomerPage getPage(int offset, int limit) throws SQLException {
+    return getPage(offset, limit, CustomerField.ALL);
+  }
 
-    List<Customer> customers = new ArrayList<>();
+  @Override
+  public CustomerPage getPage(int offset, int limit, Set<CustomerField> fields)
+      throws SQLException {
 
-    try (var conn = getConnection()) {
+    return guard.call(
+        RepoMethod.GET_PAGE,
+        prepare -> {
+          List<Customer> customers = new ArrayList<>();
 
-      var query = "select * from customer ORDER BY last_name OFFSET ? LIMIT ?; ";
+          try (var conn = getConnection()) {
 
-      var statement = conn.prepareStatement(query);
-      statement.setInt(1, offset);
-      statement.setInt(2, limit);
+            var projection = CustomerProjection.of(fields);
 
-      customers = fetchCustomers(statement);
+            var query =
+                "select "
+                    + projection.columns()
+                    + " from customer ORDER BY last_name OFFSET ? LIMIT ?; ";
 
-      statement.close();
+            var statement = prepare.apply(conn, query);
+            statement.setInt(1, offset);
+            statement.setInt(2, limit);
 
-    } catch (Exception e) {
-      throw e;
-    }
+            customers = fetchCustomers(statement, projection);
+
+            statement.close();
+
+          } catch (Exception e) {
+            throw e;
+          }
 
-    return new CustomerPage(customers, offset, limit);
+          return new CustomerPage(customers, offset, limit);
+        });
   }
 
   @Override
   public List<Customer> getByIds(List<Integer> customerIds) throws SQLException {
 
-    List<Customer> customers = new ArrayList<>();
+    return guard.call(
+        RepoMethod.GET_BY_IDS,
+        prepare -> {
+          List<Customer> customers = new ArrayList<>();
 
-    try (var conn = getConnection()) {
+          try (var conn = getConnection()) {
 
-      var idsInParens = customerIds.toString().replace("[", "(").replace("]", ")");
+            var idsInParens = customerIds.toString().replace("[", "(").replace("]", ")");
 
-      var query = "select * from customer where customer_id in " + idsInParens;
+            var query =
+                "select "
+                    + CustomerProjection.ALL.columns()
+                    + " from customer where customer_id in "
+                    + idsInParens;
 
-      var statement = conn.prepareStatement(query);
+            var statement = prepare.apply(conn, query);
 
-      customers = fetchCustomers(statement);
+            customers = fetchCustomers(statement, CustomerProjection.ALL);
 
-      statement.close();
+            statement.close();
 
-    } catch (Exception e) {
-      throw e;
-    }
+          } catch (Exception e) {
+            throw e;
+          }
 
-    return customers;
+          return customers;
+        });
   }
 
   @Override
   public List<Customer> getAll() throws SQLException {
+    return getAll(CustomerField.ALL);
+  }
 
-    List<Customer> customers = new ArrayList<>();
+  @Override
+  public List<Customer> getAll(Set<CustomerField> fields) throws SQLException {
 
-    try (var conn = getConnection()) {
+    return guard.call(
+        RepoMethod.GET_ALL,
+        prepare -> {
+          List<Customer> customers = new ArrayList<>();
 
-      var query = "select * from customer";
+          try (var conn = getConnection()) {
 
-      var statement = conn.prepareStatement(query);
+            var projection = CustomerProjection.of(fields);
 
-      customers = fetchCustomers(statement);
+            var query = "select " + projection.columns() + " from customer";
 
-      statement.close();
+            var statement = prepare.apply(conn, query);
 
-    } catch (Exception e) {
-      throw e;
-    }
+            customers = fetchCustomers(statement, projection);
 
-    return customers;
+            statement.close();
+
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return customers;
+        });
+  }
+
+  @Override
+  public void streamAll(Consumer<Customer> action) throws SQLException {
+
+    guard.call(
+        RepoMethod.STREAM_ALL,
+        prepare -> {
+          try (var conn = getConnection()) {
+
+            // The driver only fetches rows in batches of fetchSize inside a transaction.
+            conn.setAutoCommit(false);
+
+            var query = "select " + CustomerProjection.ALL.columns() + " from customer";
+
+            var statement = prepare.apply(conn, query);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+
+            var res = statement.executeQuery();
+
+            while (res.next()) action.accept(CustomerProjection.ALL.read(res));
+
+            statement.close();
+            conn.commit();
+
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return null;
+        });
   }
 
   @Override
   public TopCountry getCountryWithMostCustomers() throws SQLException {
 
-    TopCountry country = null;
+    return guard.call(
+        RepoMethod.GET_COUNTRY_WITH_MOST_CUSTOMERS,
+        prepare -> {
+          TopCountry country = null;
 
-    try (var conn = getConnection()) {
+          try (var conn = getConnection()) {
 
-      var query = "select country from customer GROUP BY country ORDER BY count(*) DESC limit 1";
+            var query =
+                "select country from customer GROUP BY country ORDER BY count(*) DESC limit 1";
 
-      var statement = conn.prepareStatement(query);
+            var statement = prepare.apply(conn, query);
 
-      var res = statement.executeQuery();
+            var res = statement.executeQuery();
 
-      if (res.next()) country = new TopCountry(res.getString("country"));
+            if (res.next()) country = new TopCountry(res.getString("country"));
 
-      statement.close();
+            statement.close();
 
-    } catch (SQLException e) {
-      throw e;
-    }
+          } catch (SQLException e) {
+            throw e;
+          }
 
-    return country;
+          return country;
+        });
   }
 
   @Override
   public TopGenre getMostPopularGenreFromOne(int customerId) throws SQLException {
 
-    TopGenre topGenre = null;
+    return guard.call(
+        RepoMethod.GET_MOST_POPULAR_GENRE_FROM_ONE,
+        prepare -> {
+          TopGenre topGenre = null;
 
-    try (var conn = getConnection()) {
+          try (var conn = getConnection()) {
 
-      var query =
-          ("SELECT g.name as genre, COUNT(*)"
-              + " FROM genre g"
-              + " INNER JOIN track t ON t.genre_id = g.genre_id"
-              + " INNER JOIN invoice_line il ON il.track_id = t.track_id"
-              + " INNER JOIN invoice i ON i.invoice_id = il.invoice_id"
-              + " WHERE i.customer_id = ?"
-              + " GROUP BY g.name"
-              + " ORDER BY count DESC"
-              + " LIMIT 2");
+            var query =
+                ("SELECT g.name as genre, COUNT(*)"
+                    + " FROM genre g"
+                    + " INNER JOIN track t ON t.genre_id = g.genre_id"
+                    + " INNER JOIN invoice_line il ON il.track_id = t.track_id"
+                    + " INNER JOIN invoice i ON i.invoice_id = il.invoice_id"
+                    + " WHERE i.customer_id = ?"
+                    + " GROUP BY g.name"
+                    + " ORDER BY count DESC"
+                    + " LIMIT 2");
 
-      var statement = conn.prepareStatement(query);
-      statement.setInt(1, customerId);
+            var statement = prepare.apply(conn, query);
+            statement.setInt(1, customerId);
 
-      var res = statement.executeQuery();
+            var res = statement.executeQuery();
 
-      res.next();
+            res.next();
 
-      var topGenres = List.of(res.getString("genre"));
-      var topGenreCount = res.getInt("count");
+            List<String> topGenres = new ArrayList<>(List.of(res.getString("genre")));
+            var topGenreCount = res.getInt("count");
 
-      while (res.next()) {
+            while (res.next()) {
 
-        if (res.getInt("count") == topGenreCount) {
-          topGenres.add(res.getString("genre"));
-        } else break;
-      }
-      ;
+              if (res.getInt("count") == topGenreCount) {
+                topGenres.add(res.getString("genre"));
+              } else break;
+            }
+            ;
 
-      topGenre = new TopGenre(customerId, topGenres, topGenreCount);
+            topGenre = new TopGenre(customerId, topGenres, topGenreCount);
 
-      statement.close();
+            statement.close();
 
-    } catch (SQLException e) {
-      throw e;
-    }
+          } catch (SQLException e) {
+            throw e;
+          }
 
-    return topGenre;
+          return topGenre;
+        });
   }
 
   @Override
   public TopSpender getTopSpender() throws SQLException {
 
-    TopSpender topSpender = null;
+    return guard.call(
+        RepoMethod.GET_TOP_SPENDER,
+        prepare -> {
+          TopSpender topSpender = null;
 
-    try (var conn = getConnection()) {
+          try (var conn = getConnection()) {
 
-      var query =
-          ("select *, sum(total)"
-              + " from customer c"
-              + " inner join invoice i on c.customer_id = i.customer_id"
-              + " group by c.customer_id, i.invoice_id"
-              + " order by sum(total) desc"
-              + " limit 1");
+            var query =
+                ("select "
+                    + CustomerProjection.ALL.columns("c")
+                    + ", sum(i.total)"
+                    + " from customer c"
+                    + " inner join invoice i on c.customer_id = i.customer_id"
+                    + " group by c.customer_id"
+                    + " order by sum(i.total) desc"
+                    + " limit 1");
 
-      var statement = conn.prepareStatement(query);
+            var statement = prepare.apply(conn, query);
 
-      var res = statement.executeQuery();
-      res.next();
+            var res = statement.executeQuery();
+            res.next();
 
-      topSpender = new TopSpender(fetchCustomer(res), res.getInt("sum"));
+            topSpender =
+                new TopSpender(
+                    CustomerProjection.ALL.read(res),
+                    res.getInt(CustomerProjection.ALL.size() + 1));
 
-      statement.close();
+            statement.close();
 
-    } catch (Exception e) {
-      throw e;
-    }
+          } catch (Exception e) {
+            throw e;
+          }
 
-    return topSpender;
+          return topSpender;
+        });
   }
 
   @Override
-  public void createNew(Customer customer) throws SQLException {
+  public SpendingSnapshot getSpendingSnapshot() throws SQLException {
 
-    try (Connection conn = getConnection()) {
+    return guard.call(
+        RepoMethod.GET_SPENDING_SNAPSHOT,
+        prepare -> {
+          List<CustomerSpending> spending = new ArrayList<>();
+          Set<Integer> invoiceIds = new HashSet<>();
 
-      String query =
-          "INSERT INTO customer (first_name, last_name, phone, postal_code, address, country,"
-              + " email) VALUES (?, ?, ?, ?, ?, ?, ?)";
+          try (var conn = getConnection()) {
 
-      PreparedStatement statement = conn.prepareStatement(query);
-      statement.setString(1, customer.firstName());
-      statement.setString(2, customer.lastName());
-      statement.setString(3, customer.phoneNumber());
-      statement.setString(4, customer.postalCode());
-      statement.setString(5, customer.address());
-      statement.setString(6, customer.country());
-      statement.setString(7, customer.email());
+            // Invoice ids are not committed in id order, so the ids counted are returned as a
+            // list per customer, from the same statement and therefore the same snapshot.
+            var query =
+                ("select "
+                    + CustomerProjection.ALL.columns("c")
+                    + ", coalesce(sum(i.total), 0)"
+                    + ", array_agg(i.invoice_id) filter (where i.invoice_id is not null)"
+                    + " from customer c"
+                    + " left join invoice i on c.customer_id = i.customer_id"
+                    + " group by c.customer_id");
 
-      statement.executeUpdate();
-      statement.close();
+            var statement = prepare.apply(conn, query);
 
-    } catch (Exception e) {
-      throw e;
-    }
+            var res = statement.executeQuery();
+
+            while (res.next()) {
+              var amountSpent = res.getBigDecimal(CustomerProjection.ALL.size() + 1);
+              spending.add(new CustomerSpending(CustomerProjection.ALL.read(res), amountSpent));
+
+              var ids = res.getArray(CustomerProjection.ALL.size() + 2);
+              if (ids != null) Collections.addAll(invoiceIds, (Integer[]) ids.getArray());
+            }
+
+            statement.close();
+
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return new SpendingSnapshot(spending, invoiceIds);
+        });
+  }
+
+  @Override
+  public List<InvoiceTotal> getInvoicesFrom(int invoiceId) throws SQLException {
+
+    return guard.call(
+        RepoMethod.GET_INVOICES_FROM,
+        prepare -> {
+          List<InvoiceTotal> invoices = new ArrayList<>();
+
+          try (var conn = getConnection()) {
+
+            var query =
+                "select invoice_id, customer_id, total from invoice"
+                    + " where invoice_id >= ? order by invoice_id";
+
+            var statement = prepare.apply(conn, query);
+            statement.setInt(1, invoiceId);
+
+            var res = statement.executeQuery();
+
+            while (res.next()) {
+              invoices.add(new InvoiceTotal(res.getInt(1), res.getInt(2), res.getBigDecimal(3)));
+            }
+
+            statement.close();
+
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return invoices;
+        });
+  }
+
+  @Override
+  public void createNew(Customer customer) throws SQLException {
+
+    guard.call(
+        RepoMethod.CREATE_NEW,
+        prepare -> {
+          try (Connection conn = getConnection()) {
+
+            String query =
+                "INSERT INTO customer (first_name, last_name, phone, postal_code, address, country,"
+                    + " email) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+            PreparedStatement statement = prepare.apply(conn, query);
+            statement.setString(1, customer.firstName());
+            statement.setString(2, customer.lastName());
+            statement.setString(3, customer.phoneNumber());
+            statement.setString(4, customer.postalCode());
+            statement.setString(5, customer.address());
+            statement.setString(6, customer.country());
+            statement.setString(7, customer.email());
+
+            statement.executeUpdate();
+            statement.close();
+
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return null;
+        });
   }
 
   @Override
   public void delete(Customer customer) throws SQLException {
 
-    var query = "delete from customer where customer_id = ?";
+    guard.call(
+        RepoMethod.DELETE,
+        prepare -> {
+          var query = "delete from customer where customer_id = ?";
 
-    try (Connection conn = getConnection()) {
+          try (Connection conn = getConnection()) {
 
-      PreparedStatement statement = conn.prepareStatement(query);
-      statement.setInt(1, customer.customerId());
+            PreparedStatement statement = prepare.apply(conn, query);
+            statement.setInt(1, customer.customerId());
 
-      statement.executeUpdate();
-      statement.close();
+            statement.executeUpdate();
+            statement.close();
 
-    } catch (Exception e) {
-      throw e;
-    }
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return null;
+        });
   }
 
   @Override
   public void deleteById(Integer customerId) throws SQLException {
 
-    var query = "delete from customer where customer_id = ?";
+    guard.call(
+        RepoMethod.DELETE_BY_ID,
+        prepare -> {
+          var query = "delete from customer where customer_id = ?";
 
-    try (Connection conn = getConnection()) {
+          try (Connection conn = getConnection()) {
 
-      PreparedStatement statement = conn.prepareStatement(query);
-      statement.setInt(1, customerId);
+            PreparedStatement statement = prepare.apply(conn, query);
+            statement.setInt(1, customerId);
 
-      statement.executeUpdate();
-      statement.close();
+            statement.executeUpdate();
+            statement.close();
 
-    } catch (Exception e) {
-      throw e;
-    }
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return null;
+        });
   }
 
   @Override
   public void update(Customer customer) throws SQLException {
-    try (Connection conn = getConnection()) {
-
-      String query =
-          "UPDATE customer SET"
-              + " first_name = ?,"
-              + " last_name = ?,"
-              + " phone = ?,"
-              + " postal_code = ?,"
-              + " address = ?,"
-              + " country = ?,"
-              + " email = ?"
-              + " WHERE customer_id = ?";
-
-      PreparedStatement statement = conn.prepareStatement(query);
-      statement.setString(1, customer.firstName());
-      statement.setString(2, customer.lastName());
-      statement.setString(3, customer.phoneNumber());
-      statement.setString(4, customer.postalCode());
-      statement.setString(5, customer.address());
-      statement.setString(6, customer.country());
-      statement.setString(7, customer.email());
-      statement.setInt(8, customer.customerId());
-
-      statement.executeUpdate();
-      statement.close();
-
-    } catch (Exception e) {
-      throw e;
-    }
+
+    guard.call(
+        RepoMethod.UPDATE,
+        prepare -> {
+          try (Connection conn = getConnection()) {
+
+            String query =
+                "UPDATE customer SET"
+                    + " first_name = ?,"
+                    + " last_name = ?,"
+                    + " phone = ?,"
+                    + " postal_code = ?,"
+                    + " address = ?,"
+                    + " country = ?,"
+                    + " email = ?"
+                    + " WHERE customer_id = ?";
+
+            PreparedStatement statement = prepare.apply(conn, query);
+            statement.setString(1, customer.firstName());
+            statement.setString(2, customer.lastName());
+            statement.setString(3, customer.phoneNumber());
+            statement.setString(4, customer.postalCode());
+            statement.setString(5, customer.address());
+            statement.setString(6, customer.country());
+            statement.setString(7, customer.email());
+            statement.setInt(8, customer.customerId());
+
+            statement.executeUpdate();
+            statement.close();
+
+          } catch (Exception e) {
+            throw e;
+          }
+
+          return null;
+        });
   }
 }
@@ -0,0 +1,132 @@
+package com.hitunes.services;
+
+import com.hitunes.models.*;
+import java.sql.*;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compares reading the customer table with {@code select *} and column name lookups against
+ * reading it through a {@link CustomerProjection}.
+ *
+ * <p>Reports rows per second and the text size of a scan: the size of every row rendered as a text
+ * literal, computed by the database with {@code octet_length(row::text)}. This compares how much
+ * data each variant selects. It is not the number of bytes on the wire, which leaves out the row
+ * literal syntax but adds a length header per column and the framing of every message.
+ */
+@Component
+public class FetchBenchmark {
+  @Value("${spring.datasource.url}")
+  private String url;
+
+  @Value("${spring.datasource.username}")
+  private String username;
+
+  @Value("${spring.datasource.password}")
+  private String password;
+
+  private interface RowReader {
+    Customer read(ResultSet res) throws SQLException;
+  }
+
+  /**
+   * Runs every variant for the given amount of rounds, after one warm-up round, and writes one
+   * result line per variant.
+   *
+   * @param rounds how many times to read the customer table per variant
+   * @param out receives the result lines
+   * @throws SQLException if there is an error with the database request.
+   */
+  public void run(int rounds, Consumer<String> out) throws SQLException {
+    var summary = CustomerProjection.of(CustomerField.SUMMARY);
+
+    try (var conn = DriverManager.getConnection(url, username, password)) {
+
+      measure(
+          conn,
+          "select * by column name",
+          "select * from customer",
+          this::readByName,
+          rounds,
+          out);
+
+      measure(
+          conn,
+          "projection, all fields",
+          "select " + CustomerProjection.ALL.columns() + " from customer",
+          CustomerProjection.ALL::read,
+          rounds,
+          out);
+
+      measure(
+          conn,
+          "projection, summary fields",
+          "select " + summary.columns() + " from customer",
+          summary::read,
+          rounds,
+          out);
+    }
+  }
+
+  private void measure(
+      Connection conn,
+      String name,
+      String query,
+      RowReader reader,
+      int rounds,
+      Consumer<String> out)
+      throws SQLException {
+
+    var textSize = 0L;
+
+    try (var statement =
+        conn.prepareStatement(
+            "select coalesce(sum(octet_length(t::text)), 0) from (" + query + ") t")) {
+      var res = statement.executeQuery();
+      if (res.next()) textSize = res.getLong(1);
+    }
+
+    readAll(conn, query, reader);
+
+    var rows = 0L;
+    var start = System.nanoTime();
+
+    for (var i = 0; i < rounds; i++) rows += readAll(conn, query, reader);
+
+    var seconds = (System.nanoTime() - start) / 1e9;
+
+    out.accept(
+        String.format(
+            "%-28s %,12.0f rows/s %,10d bytes text size per scan", name, rows / seconds, textSize));
+  }
+
+  private static long readAll(Connection conn, String query, RowReader reader)
+      throws SQLException {
+    var rows = 0L;
+
+    try (var statement = conn.prepareStatement(query)) {
+      var res = statement.executeQuery();
+
+      while (res.next()) {
+        reader.read(res);
+        rows++;
+      }
+    }
+
+    return rows;
+  }
+
+  /** Reads a row the way CustomerRepoImpl did before projections, as the baseline. */
+  private Customer readByName(ResultSet res) throws SQLException {
+    return new Customer(
+        res.getInt("customer_id"),
+        res.getString("phone"),
+        res.getString("postal_code"),
+        res.getString("address"),
+        res.getString("country"),
+        res.getString("first_name"),
+        res.getString("last_name"),
+        res.getString("email"));
+  }
+}
@@ -0,0 +1,222 @@
+package com.hitunes.services;
+
+import java.util.*;
+
+/**
+ * A sorted collection of unique elements that supports positional queries in logarithmic time.
+ *
+ * <p>Implemented as an AVL tree where every node also stores the size of its subtree, which lets
+ * {@link #rank(Object)} and {@link #select(int)} walk a single root-to-leaf path.
+ *
+ * <p>Not thread safe.
+ *
+ * @param <T> the type of the elements, ordered by the comparator given at construction
+ */
+class OrderStatisticTree<T> {
+  private final Comparator<? super T> comparator;
+  private Node<T> root;
+
+  private static final class Node<T> {
+    T value;
+    Node<T> left;
+    Node<T> right;
+    int height = 1;
+    int size = 1;
+
+    Node(T value) {
+      this.value = value;
+    }
+  }
+
+  OrderStatisticTree(Comparator<? super T> comparator) {
+    this.comparator = comparator;
+  }
+
+  /**
+   * Returns the number of elements in the tree.
+   *
+   * @return the number of elements
+   */
+  int size() {
+    return size(root);
+  }
+
+  /** Removes all elements. */
+  void clear() {
+    root = null;
+  }
+
+  /**
+   * Inserts an element. Does nothing if an equal element is already present.
+   *
+   * @param value the element to insert
+   */
+  void insert(T value) {
+    root = insert(root, value);
+  }
+
+  /**
+   * Removes an element. Does nothing if no equal element is present.
+   *
+   * @param value the element to remove
+   */
+  void remove(T value) {
+    root = remove(root, value);
+  }
+
+  /**
+   * Returns the number of elements that are strictly smaller than the given value.
+   *
+   * <p>The value does not need to be present in the tree.
+   *
+   * @param value the value to rank
+   * @return the zero based position the value has, or would have, in the tree
+   */
+  int rank(T value) {
+    var rank = 0;
+    var node = root;
+
+    while (node != null) {
+      var cmp = comparator.compare(value, node.value);
+
+      if (cmp <= 0) {
+        node = node.left;
+      } else {
+        rank += size(node.left) + 1;
+        node = node.right;
+      }
+    }
+
+    return rank;
+  }
+
+  /**
+   * Returns the element at the given zero based position.
+   *
+   * @param index a position between 0 and size() - 1
+   * @return the element at the position
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  T select(int index) {
+    Objects.checkIndex(index, size());
+
+    var node = root;
+
+    while (true) {
+      var leftSize = size(node.left);
+
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index > leftSize) {
+        index -= leftSize + 1;
+        node = node.right;
+      } else {
+        return node.value;
+      }
+    }
+  }
+
+  /**
+   * Returns the first elements of the tree in order.
+   *
+   * @param limit the maximum amount of elements to return
+   * @return a list of at most limit elements
+   */
+  List<T> head(int limit) {
+    List<T> values = new ArrayList<>(Math.min(Math.max(limit, 0), size()));
+    head(root, limit, values);
+    return values;
+  }
+
+  private void head(Node<T> node, int limit, List<T> values) {
+    if (node == null || values.size() >= limit) return;
+
+    head(node.left, limit, values);
+    if (values.size() < limit) values.add(node.value);
+    head(node.right, limit, values);
+  }
+
+  private Node<T> insert(Node<T> node, T value) {
+    if (node == null) return new Node<>(value);
+
+    var cmp = comparator.compare(value, node.value);
+
+    if (cmp < 0) node.left = insert(node.left, value);
+    else if (cmp > 0) node.right = insert(node.right, value);
+    else return node;
+
+    return balance(node);
+  }
+
+  private Node<T> remove(Node<T> node, T value) {
+    if (node == null) return null;
+
+    var cmp = comparator.compare(value, node.value);
+
+    if (cmp < 0) {
+      node.left = remove(node.left, value);
+    } else if (cmp > 0) {
+      node.right = remove(node.right, value);
+    } else {
+      if (node.left == null) return node.right;
+      if (node.right == null) return node.left;
+
+      var successor = node.right;
+      while (successor.left != null) successor = successor.left;
+
+      node.value = successor.value;
+      node.right = remove(node.right, successor.value);
+    }
+
+    return balance(node);
+  }
+
+  private Node<T> balance(Node<T> node) {
+    update(node);
+
+    var factor = height(node.left) - height(node.right);
+
+    if (factor > 1) {
+      if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+      return rotateRight(node);
+    }
+
+    if (factor < -1) {
+      if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+      return rotateLeft(node);
+    }
+
+    return node;
+  }
+
+  private Node<T> rotateRight(Node<T> node) {
+    var pivot = node.left;
+    node.left = pivot.right;
+    pivot.right = node;
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  private Node<T> rotateLeft(Node<T> node) {
+    var pivot = node.right;
+    node.right = pivot.left;
+    pivot.left = node;
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  private void update(Node<T> node) {
+    node.height = Math.max(height(node.left), height(node.right)) + 1;
+    node.size = size(node.left) + size(node.right) + 1;
+  }
+
+  private static int height(Node<?> node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int size(Node<?> node) {
+    return node == null ? 0 : node.size;
+  }
+}
@@ -0,0 +1,138 @@
+package com.hitunes.services;
+
+import com.hitunes.models.BulkheadMetrics;
+import java.sql.*;
+import java.util.*;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the resilience settings to {@link CustomerRepoImpl}: a {@link Bulkhead} per {@link
+ * Workload} and a query timeout per {@link RepoMethod}.
+ *
+ * <p>Configured with the properties below, where &lt;workload&gt; is oltp, analytics or bulk. Unset
+ * properties fall back to the defaults of the {@link Workload}.
+ *
+ * <ul>
+ *   <li>hitunes.resilience.&lt;workload&gt;.max-concurrent calls running at once, at least 1
+ *   <li>hitunes.resilience.&lt;workload&gt;.max-queued calls waiting for a slot before shedding
+ *   <li>hitunes.resilience.&lt;workload&gt;.max-wait-ms how long a call waits for a slot
+ *   <li>hitunes.resilience.&lt;workload&gt;.timeout-seconds default query timeout, 0 for none
+ *   <li>hitunes.resilience.timeout.&lt;method&gt; query timeout of a single method, 0 for none
+ * </ul>
+ *
+ * <p>The other settings cannot be negative. Invalid values fail at startup rather than when the
+ * first call is shed or the first query runs.
+ */
+@Component
+public class QueryGuard {
+  private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+  private final Map<RepoMethod, Integer> timeouts = new EnumMap<>(RepoMethod.class);
+
+  /** Prepares statements with the query timeout of the repository method they belong to. */
+  @FunctionalInterface
+  interface StatementFactory {
+    PreparedStatement apply(Connection conn, String query) throws SQLException;
+  }
+
+  /** Database work that prepares its statements through the given factory. */
+  @FunctionalInterface
+  interface GuardedCall<T> {
+    T call(StatementFactory prepare) throws SQLException;
+  }
+
+  /**
+   * Reads and validates the resilience settings.
+   *
+   * @param env the environment holding the hitunes.resilience properties
+   * @throws IllegalArgumentException if a setting is below its allowed minimum
+   */
+  public QueryGuard(Environment env) {
+    for (var workload : Workload.values()) {
+      var prefix = workload.propertyPrefix();
+
+      bulkheads.put(
+          workload,
+          new Bulkhead(
+              workload.name(),
+              intSetting(env, prefix + ".max-concurrent", workload.maxConcurrent, 1),
+              intSetting(env, prefix + ".max-queued", workload.maxQueued, 0),
+              longSetting(env, prefix + ".max-wait-ms", workload.maxWaitMillis, 0)));
+    }
+
+    for (var method : RepoMethod.values()) {
+      var defaultTimeout =
+          intSetting(
+              env,
+              method.workload.propertyPrefix() + ".timeout-seconds",
+              method.workload.timeoutSeconds,
+              0);
+
+      timeouts.put(
+          method, intSetting(env, "hitunes.resilience.timeout." + method.key(), defaultTimeout, 0));
+    }
+  }
+
+  /**
+   * Returns the current state and counters of every bulkhead.
+   *
+   * @return one entry per workload
+   */
+  public List<BulkheadMetrics> metrics() {
+    return bulkheads.values().stream().map(Bulkhead::metrics).toList();
+  }
+
+  /**
+   * Returns how many calls can run at the same time in every workload, which is the smallest
+   * max-concurrent of all bulkheads.
+   *
+   * <p>Callers that issue one call at a time per thread, such as the batch runner, never have their
+   * calls queued or shed as long as they use at most this many threads.
+   *
+   * @return the smallest number of concurrent calls a bulkhead allows
+   */
+  public int maxConcurrentCalls() {
+    return metrics().stream().mapToInt(BulkheadMetrics::maxConcurrent).min().orElse(1);
+  }
+
+  /**
+   * Runs a repository call inside the bulkhead of its workload.
+   *
+   * <p>The call prepares its statements through the factory it is given, which applies the query
+   * timeout of the same method, so the method is only named once per call site.
+   *
+   * @param method the repository method making the call
+   * @param call the database work
+   * @return the result of the call
+   * @throws BulkheadFullException if the call was shed
+   * @throws SQLException if the call fails
+   */
+  <T> T call(RepoMethod method, GuardedCall<T> call) throws SQLException {
+    var timeout = timeouts.get(method);
+
+    StatementFactory prepare =
+        (conn, query) -> {
+          var statement = conn.prepareStatement(query);
+          statement.setQueryTimeout(timeout);
+          return statement;
+        };
+
+    return bulkheads.get(method.workload).call(() -> call.call(prepare));
+  }
+
+  private static int intSetting(Environment env, String key, int defaultValue, int min) {
+    var value = env.getProperty(key, Integer.class, defaultValue);
+    if (value < min) throw invalidSetting(key, value, min);
+    return value;
+  }
+
+  private static long longSetting(Environment env, String key, long defaultValue, long min) {
+    var value = env.getProperty(key, Long.class, defaultValue);
+    if (value < min) throw invalidSetting(key, value, min);
+    return value;
+  }
+
+  private static IllegalArgumentException invalidSetting(String key, long value, long min) {
+    return new IllegalArgumentException(key + " must be at least " + min + " but is " + value);
+  }
+}
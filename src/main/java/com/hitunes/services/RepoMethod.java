@@ -0,0 +1,40 @@
+package com.hitunes.services;
+
+/**
+ * The {@link CustomerRepoImpl} methods that run queries, with the {@link Workload} they belong to.
+ *
+ * <p>The query timeout of a method can be overridden with hitunes.resilience.timeout.&lt;key&gt;,
+ * for example hitunes.resilience.timeout.get-top-spender=5.
+ */
+enum RepoMethod {
+  GET_BY_ID(Workload.OLTP),
+  GET_BY_IDS(Workload.OLTP),
+  GET_BY_NAME(Workload.OLTP),
+  GET_PAGE(Workload.OLTP),
+  CREATE_NEW(Workload.OLTP),
+  UPDATE(Workload.OLTP),
+  DELETE(Workload.OLTP),
+  DELETE_BY_ID(Workload.OLTP),
+  GET_ALL(Workload.BULK),
+  STREAM_ALL(Workload.BULK),
+  GET_TOP_SPENDER(Workload.ANALYTICS),
+  GET_SPENDING_SNAPSHOT(Workload.ANALYTICS),
+  GET_INVOICES_FROM(Workload.ANALYTICS),
+  GET_MOST_POPULAR_GENRE_FROM_ONE(Workload.ANALYTICS),
+  GET_COUNTRY_WITH_MOST_CUSTOMERS(Workload.ANALYTICS);
+
+  final Workload workload;
+
+  RepoMethod(Workload workload) {
+    this.workload = workload;
+  }
+
+  /**
+   * Returns the key used in the timeout property of this method, such as get-top-spender.
+   *
+   * @return a lower case, dash separated key
+   */
+  String key() {
+    return name().toLowerCase().replace('_', '-');
+  }
+}
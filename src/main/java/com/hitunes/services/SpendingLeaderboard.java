@@ -0,0 +1,249 @@
+package com.hitunes.services;
+
+import com.hitunes.models.*;
+import com.hitunes.repositories.CustomerRepo;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.*;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory leaderboard of {@link Customer} spending.
+ *
+ * <p>Per-customer totals are loaded from the database once, on first use, and kept in order
+ * statistic trees (one global and one per country). New invoices are applied incrementally, pushed
+ * with {@link #recordInvoice(int, int, BigDecimal)} or pulled with {@link #syncInvoices()}, so
+ * top-N and rank queries never hit the database.
+ *
+ * <p>Invoice ids come from a sequence and are not committed in id order, so a load can include
+ * invoice 102 while 101 is still in flight. The leaderboard therefore remembers exactly which
+ * invoice ids it has counted, one bit per id, rather than the highest one. Every invoice is counted
+ * once, whether it arrives through the load, recordInvoice or syncInvoices, and in any order. The
+ * ids are dropped on {@link #refresh()}.
+ *
+ * <p>Top-N queries run in O(log n + N), rank and percentile queries in O(log n).
+ */
+@Service
+public class SpendingLeaderboard {
+  private static final Comparator<CustomerSpending> BY_AMOUNT_SPENT =
+      Comparator.comparing(CustomerSpending::amountSpent)
+          .reversed()
+          .thenComparingInt(spending -> spending.customer().customerId());
+
+  private final CustomerRepo customerRepo;
+
+  private final Map<Integer, CustomerSpending> standings = new HashMap<>();
+  private final OrderStatisticTree<CustomerSpending> global =
+      new OrderStatisticTree<>(BY_AMOUNT_SPENT);
+  private final Map<String, OrderStatisticTree<CustomerSpending>> byCountry = new HashMap<>();
+  private final BitSet countedInvoiceIds = new BitSet();
+  private boolean loaded;
+
+  public SpendingLeaderboard(CustomerRepo customerRepo) {
+    this.customerRepo = customerRepo;
+  }
+
+  /**
+   * Returns the customers with the highest total spending, highest first.
+   *
+   * @param limit how many customers to return
+   * @return a list of at most limit leaderboard entries
+   * @throws SQLException if there is an error loading the leaderboard.
+   */
+  public synchronized List<LeaderboardEntry> getTopSpenders(int limit) throws SQLException {
+    ensureLoaded();
+    return toEntries(global.head(limit));
+  }
+
+  /**
+   * Returns the customers from a country with the highest total spending, highest first.
+   *
+   * <p>Ranks are relative to the country.
+   *
+   * @param country case sensitive country name
+   * @param limit how many customers to return
+   * @return a list of at most limit leaderboard entries, empty if the country has no customers
+   * @throws SQLException if there is an error loading the leaderboard.
+   */
+  public synchronized List<LeaderboardEntry> getTopSpenders(String country, int limit)
+      throws SQLException {
+    ensureLoaded();
+
+    var tree = byCountry.get(country);
+    if (tree == null) return List.of();
+
+    return toEntries(tree.head(limit));
+  }
+
+  /**
+   * Returns the global leaderboard position of a customer.
+   *
+   * @param customerId a valid customer id
+   * @return the entry of the customer, or {@literal Optional#empty()} if the customer is unknown
+   * @throws SQLException if there is an error loading the leaderboard.
+   */
+  public synchronized Optional<LeaderboardEntry> getRank(int customerId) throws SQLException {
+    ensureLoaded();
+    return rankIn(global, customerId);
+  }
+
+  /**
+   * Returns the leaderboard position of a customer within the customer's own country.
+   *
+   * @param customerId a valid customer id
+   * @return the entry of the customer, or {@literal Optional#empty()} if the customer is unknown
+   * @throws SQLException if there is an error loading the leaderboard.
+   */
+  public synchronized Optional<LeaderboardEntry> getCountryRank(int customerId)
+      throws SQLException {
+    ensureLoaded();
+
+    var spending = standings.get(customerId);
+    if (spending == null) return Optional.empty();
+
+    return rankIn(byCountry.get(spending.customer().country()), customerId);
+  }
+
+  /**
+   * Returns the percentage of customers that spent strictly less than the given customer.
+   *
+   * @param customerId a valid customer id
+   * @return a value between 0 and 100, or empty if the customer is unknown
+   * @throws SQLException if there is an error loading the leaderboard.
+   */
+  public synchronized OptionalDouble getPercentile(int customerId) throws SQLException {
+    ensureLoaded();
+
+    var spending = standings.get(customerId);
+    if (spending == null) return OptionalDouble.empty();
+
+    // Sorts after every customer with the same amount, so ties count as spending at least as much.
+    var probe =
+        new CustomerSpending(
+            new Customer(Integer.MAX_VALUE, null, null, null, null, null, null, null),
+            spending.amountSpent());
+    var spentLess = global.size() - global.rank(probe);
+
+    return OptionalDouble.of(100.0 * spentLess / global.size());
+  }
+
+  /**
+   * Adds an invoice total to a customer's spending and moves the customer to its new position.
+   *
+   * <p>Invoices already counted, by the load or earlier calls, are ignored. Customers that are not
+   * on the leaderboard yet are fetched from the database.
+   *
+   * @param invoiceId the id of the invoice
+   * @param customerId a valid customer id
+   * @param total the invoice total
+   * @return true if the invoice was applied, false if it was already counted
+   * @throws SQLException if there is an error with the database request.
+   * @throws NoSuchElementException if no customer has the given id.
+   */
+  public synchronized boolean recordInvoice(int invoiceId, int customerId, BigDecimal total)
+      throws SQLException {
+    ensureLoaded();
+
+    if (countedInvoiceIds.get(invoiceId)) return false;
+
+    var previous = standings.get(customerId);
+
+    Customer customer;
+    BigDecimal amountSpent;
+
+    if (previous == null) {
+      customer = customerRepo.getById(customerId).orElseThrow();
+      amountSpent = total;
+    } else {
+      remove(previous);
+      customer = previous.customer();
+      amountSpent = previous.amountSpent().add(total);
+    }
+
+    add(new CustomerSpending(customer, amountSpent));
+    countedInvoiceIds.set(invoiceId);
+
+    return true;
+  }
+
+  /**
+   * Applies every invoice in the database that has not been counted yet.
+   *
+   * <p>Reads the invoices from the lowest id not counted yet. An id that never commits, such as one
+   * from a rolled back insert, keeps that starting point until the next {@link #refresh()}.
+   *
+   * @return how many invoices were applied
+   * @throws SQLException if there is an error with the database request.
+   */
+  public synchronized int syncInvoices() throws SQLException {
+    ensureLoaded();
+
+    var applied = 0;
+
+    for (var invoice : customerRepo.getInvoicesFrom(countedInvoiceIds.nextClearBit(1))) {
+      if (recordInvoice(invoice.invoiceId(), invoice.customerId(), invoice.total())) applied++;
+    }
+
+    return applied;
+  }
+
+  /**
+   * Discards the in-memory leaderboard and reloads the totals from the database.
+   *
+   * @throws SQLException if there is an error with the database request.
+   */
+  public synchronized void refresh() throws SQLException {
+    var snapshot = customerRepo.getSpendingSnapshot();
+
+    standings.clear();
+    global.clear();
+    byCountry.clear();
+    countedInvoiceIds.clear();
+
+    snapshot.customers().forEach(this::add);
+    snapshot.invoiceIds().forEach(countedInvoiceIds::set);
+    loaded = true;
+  }
+
+  private void ensureLoaded() throws SQLException {
+    if (!loaded) refresh();
+  }
+
+  private void add(CustomerSpending spending) {
+    standings.put(spending.customer().customerId(), spending);
+    global.insert(spending);
+    byCountry
+        .computeIfAbsent(
+            spending.customer().country(), country -> new OrderStatisticTree<>(BY_AMOUNT_SPENT))
+        .insert(spending);
+  }
+
+  private void remove(CustomerSpending spending) {
+    standings.remove(spending.customer().customerId());
+    global.remove(spending);
+
+    var tree = byCountry.get(spending.customer().country());
+    tree.remove(spending);
+    if (tree.size() == 0) byCountry.remove(spending.customer().country());
+  }
+
+  private Optional<LeaderboardEntry> rankIn(
+      OrderStatisticTree<CustomerSpending> tree, int customerId) {
+    var spending = standings.get(customerId);
+    if (spending == null) return Optional.empty();
+
+    var rank = tree.rank(spending) + 1;
+    return Optional.of(new LeaderboardEntry(rank, spending.customer(), spending.amountSpent()));
+  }
+
+  private static List<LeaderboardEntry> toEntries(List<CustomerSpending> head) {
+    List<LeaderboardEntry> entries = new ArrayList<>(head.size());
+
+    for (var spending : head) {
+      entries.add(
+          new LeaderboardEntry(entries.size() + 1, spending.customer(), spending.amountSpent()));
+    }
+
+    return entries;
+  }
+}
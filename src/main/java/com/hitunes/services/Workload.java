@@ -0,0 +1,35 @@
+package com.hitunes.services;
+
+/**
+ * The bulkheads repository calls are divided into, so slow analytics cannot starve lookups and
+ * full-table reads cannot starve analytics.
+ *
+ * <p>Each workload carries the defaults used when its hitunes.resilience properties are not set.
+ */
+enum Workload {
+  OLTP(16, 64, 100, 2),
+  ANALYTICS(4, 8, 1000, 30),
+  BULK(4, 4, 5000, 300);
+
+  final int maxConcurrent;
+  final int maxQueued;
+  final long maxWaitMillis;
+  final int timeoutSeconds;
+
+  Workload(int maxConcurrent, int maxQueued, long maxWaitMillis, int timeoutSeconds) {
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+    this.maxWaitMillis = maxWaitMillis;
+    this.timeoutSeconds = timeoutSeconds;
+  }
+
+  /**
+   * Returns the prefix of the properties configuring this workload, such as
+   * hitunes.resilience.oltp.
+   *
+   * @return a property prefix without a trailing dot
+   */
+  String propertyPrefix() {
+    return "hitunes.resilience." + name().toLowerCase();
+  }
+}
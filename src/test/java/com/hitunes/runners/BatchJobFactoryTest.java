@@ -0,0 +1,28 @@
+package com.hitunes.runners;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BatchJobFactoryTest {
+  private final BatchJobFactory factory = new BatchJobFactory(null, null, null, null);
+
+  @Test
+  void rejectsCustomersByIdsWithoutIds() {
+    assertThrows(IllegalArgumentException.class, () -> factory.create("customers-by-ids"));
+    assertThrows(IllegalArgumentException.class, () -> factory.create("customers-by-ids:"));
+    assertThrows(IllegalArgumentException.class, () -> factory.create("customers-by-ids:1,x"));
+  }
+
+  @Test
+  void acceptsCustomersByIds() {
+    assertEquals("customers-by-ids:1,2", factory.create("customers-by-ids:1,2").name());
+  }
+
+  @Test
+  void schedulesWritesAndMeasurementsExclusively() {
+    assertTrue(factory.create("import:customers.csv").exclusive());
+    assertTrue(factory.create("fetch-benchmark:5").exclusive());
+    assertFalse(factory.create("export:customers.csv").exclusive());
+  }
+}
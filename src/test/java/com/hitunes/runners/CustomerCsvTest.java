@@ -0,0 +1,54 @@
+package com.hitunes.runners;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.hitunes.models.Customer;
+import org.junit.jupiter.api.Test;
+
+class CustomerCsvTest {
+
+  @Test
+  void roundTripsPlainFields() {
+    assertRoundTrip(
+        new Customer(
+            1,
+            "+47 22 44 22 22",
+            "0171",
+            "Ullevålsveien 14",
+            "Norway",
+            "Bjørn",
+            "Hansen",
+            "bjorn@example.com"));
+  }
+
+  @Test
+  void roundTripsCommasAndQuotes() {
+    var customer =
+        new Customer(
+            2, null, null, "1 Infinite Loop, Suite \"A\"", "USA", "\"Ted\"", "O\"Neil, Jr.", null);
+
+    assertEquals(
+        "2,\"\"\"Ted\"\"\",\"O\"\"Neil, Jr.\",,,\"1 Infinite Loop, Suite \"\"A\"\"\",USA,",
+        CustomerCsv.format(customer));
+    assertRoundTrip(customer);
+  }
+
+  @Test
+  void keepsEmptyStringsApartFromNulls() {
+    var customer = new Customer(3, "", null, "", null, "Ada", "", null);
+
+    assertEquals("3,Ada,\"\",\"\",,\"\",,", CustomerCsv.format(customer));
+    assertRoundTrip(customer);
+  }
+
+  @Test
+  void rejectsLinesWithTheWrongNumberOfFields() {
+    assertThrows(IllegalArgumentException.class, () -> CustomerCsv.parse("1,Ada,Lovelace"));
+    assertThrows(
+        IllegalArgumentException.class, () -> CustomerCsv.parse("1,a,b,c,d,e,f,g,\"h,i\",j"));
+  }
+
+  private static void assertRoundTrip(Customer customer) {
+    assertEquals(customer, CustomerCsv.parse(CustomerCsv.format(customer)));
+  }
+}
@@ -0,0 +1,87 @@
+package com.hitunes.runners;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+class LoadGeneratorTest {
+  private static final long SLO_P99_MILLIS = 50;
+  private static final double MAX_ERROR_RATIO = 0.01;
+
+  @Test
+  void healthyStepIsNotSaturated() {
+    var step = step(100, 1000, 99.0, 10, 5, 0);
+
+    assertFalse(step.saturated(SLO_P99_MILLIS, MAX_ERROR_RATIO));
+  }
+
+  @Test
+  void saturatedWhenAchievedRateMissesTheTarget() {
+    var step = step(100, 1000, 94.0, 10, 0, 0);
+
+    assertTrue(step.saturated(SLO_P99_MILLIS, MAX_ERROR_RATIO));
+  }
+
+  @Test
+  void saturatedWhenP99ExceedsTheObjective() {
+    var step = step(100, 1000, 100.0, 51, 0, 0);
+
+    assertTrue(step.saturated(SLO_P99_MILLIS, MAX_ERROR_RATIO));
+  }
+
+  @Test
+  void saturatedWhenFailedAndShedCallsExceedTheErrorRatio() {
+    var step = step(100, 1000, 100.0, 10, 6, 5);
+
+    assertEquals(0.011, step.errorRatio(), 1e-9);
+    assertTrue(step.saturated(SLO_P99_MILLIS, MAX_ERROR_RATIO));
+  }
+
+  @Test
+  void rejectsInvalidSettings() {
+    assertThrows(IllegalArgumentException.class, () -> generator(0, new int[] {50}, 30, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> generator(16, new int[] {}, 30, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> generator(16, new int[] {50, 0}, 30, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> generator(16, new int[] {50}, 0, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> generator(16, new int[] {50}, 30, 1.5));
+  }
+
+  /**
+   * Returns a step where every successful call took the given latency, and the errors and shed
+   * calls all belong to the first operation.
+   */
+  private static LoadGenerator.StepResult step(
+      int targetRate,
+      long requests,
+      double achievedRate,
+      long latencyMillis,
+      long errors,
+      long shed) {
+    Map<LoadOperation, Histogram> latencies = new EnumMap<>(LoadOperation.class);
+    Map<LoadOperation, LongAdder> errorCounts = new EnumMap<>(LoadOperation.class);
+    Map<LoadOperation, LongAdder> shedCounts = new EnumMap<>(LoadOperation.class);
+
+    for (var operation : LoadOperation.values()) {
+      latencies.put(operation, new Histogram(3));
+      errorCounts.put(operation, new LongAdder());
+      shedCounts.put(operation, new LongAdder());
+    }
+
+    var total = new Histogram(3);
+    total.recordValueWithCount(latencyMillis * 1000, requests - errors - shed);
+    latencies.get(LoadOperation.GET_BY_ID).add(total);
+    errorCounts.get(LoadOperation.GET_BY_ID).add(errors);
+    shedCounts.get(LoadOperation.GET_BY_ID).add(shed);
+
+    return new LoadGenerator.StepResult(
+        targetRate, requests, achievedRate, latencies, errorCounts, shedCounts, total);
+  }
+
+  private static LoadGenerator generator(
+      int concurrency, int[] rates, int stepSeconds, double maxErrorRatio) {
+    return new LoadGenerator(null, null, concurrency, rates, stepSeconds, 50, maxErrorRatio);
+  }
+}
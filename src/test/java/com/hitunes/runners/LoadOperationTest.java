@@ -0,0 +1,43 @@
+package com.hitunes.runners;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class LoadOperationTest {
+
+  @Test
+  void weightsAddUpToAHundred() {
+    assertEquals(100, Arrays.stream(LoadOperation.values()).mapToInt(o -> o.weight).sum());
+  }
+
+  @Test
+  void everyRollLandsInTheBucketOfItsWeight() {
+    Map<LoadOperation, Integer> counts = new EnumMap<>(LoadOperation.class);
+
+    for (var roll = 0; roll < 100; roll++) counts.merge(LoadOperation.pick(roll), 1, Integer::sum);
+
+    assertEquals(60, counts.get(LoadOperation.GET_BY_ID));
+    assertEquals(20, counts.get(LoadOperation.GET_BY_IDS));
+    assertEquals(10, counts.get(LoadOperation.GET_PAGE));
+    assertEquals(5, counts.get(LoadOperation.ANALYTICS));
+    assertEquals(5, counts.get(LoadOperation.WRITE));
+  }
+
+  @Test
+  void bucketsAreContiguous() {
+    assertEquals(LoadOperation.GET_BY_ID, LoadOperation.pick(59));
+    assertEquals(LoadOperation.GET_BY_IDS, LoadOperation.pick(60));
+    assertEquals(LoadOperation.GET_PAGE, LoadOperation.pick(80));
+    assertEquals(LoadOperation.ANALYTICS, LoadOperation.pick(90));
+    assertEquals(LoadOperation.WRITE, LoadOperation.pick(95));
+    assertEquals(LoadOperation.WRITE, LoadOperation.pick(99));
+  }
+
+  @Test
+  void rejectsRollsOutOfRange() {
+    assertThrows(IllegalArgumentException.class, () -> LoadOperation.pick(-1));
+    assertThrows(IllegalArgumentException.class, () -> LoadOperation.pick(100));
+  }
+}
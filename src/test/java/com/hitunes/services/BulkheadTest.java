@@ -0,0 +1,114 @@
+package com.hitunes.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class BulkheadTest {
+
+  @Test
+  void shedsWhenQueueIsFull() throws Exception {
+    var bulkhead = new Bulkhead("test", 1, 0, 10_000);
+
+    try (var holder = new Holder(bulkhead)) {
+      var start = System.nanoTime();
+
+      assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "unreachable"));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+    }
+
+    var metrics = bulkhead.metrics();
+    assertEquals(1, metrics.accepted());
+    assertEquals(1, metrics.rejected());
+  }
+
+  @Test
+  void shedsAfterMaxWait() throws Exception {
+    var bulkhead = new Bulkhead("test", 1, 1, 50);
+
+    try (var holder = new Holder(bulkhead)) {
+      var start = System.nanoTime();
+
+      assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "unreachable"));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+      assertEquals(0, bulkhead.metrics().queued());
+    }
+
+    assertEquals(1, bulkhead.metrics().rejected());
+  }
+
+  @Test
+  void releasesSlotWhenCallFails() throws Exception {
+    var bulkhead = new Bulkhead("test", 1, 0, 0);
+
+    assertThrows(
+        SQLException.class,
+        () ->
+            bulkhead.call(
+                () -> {
+                  throw new SQLException("broken");
+                }));
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            bulkhead.call(
+                () -> {
+                  throw new IllegalStateException("broken");
+                }));
+
+    assertEquals("ok", bulkhead.call(() -> "ok"));
+    assertEquals(0, bulkhead.metrics().active());
+    assertEquals(0, bulkhead.metrics().rejected());
+  }
+
+  @Test
+  void countsQueryTimeouts() {
+    var bulkhead = new Bulkhead("test", 1, 0, 0);
+
+    assertThrows(
+        SQLException.class,
+        () ->
+            bulkhead.call(
+                () -> {
+                  throw new SQLException("canceling statement due to user request", "57014");
+                }));
+    assertThrows(
+        SQLException.class,
+        () ->
+            bulkhead.call(
+                () -> {
+                  throw new SQLException("syntax error", "42601");
+                }));
+
+    assertEquals(1, bulkhead.metrics().queryTimeouts());
+  }
+
+  /** Occupies the only slot of a bulkhead until closed. */
+  private static class Holder implements AutoCloseable {
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CompletableFuture<Void> release = new CompletableFuture<>();
+    private final Future<?> call;
+
+    Holder(Bulkhead bulkhead) throws InterruptedException {
+      call =
+          ForkJoinPool.commonPool()
+              .submit(
+                  () ->
+                      bulkhead.call(
+                          () -> {
+                            running.countDown();
+                            release.join();
+                            return null;
+                          }));
+      running.await();
+    }
+
+    @Override
+    public void close() throws Exception {
+      release.complete(null);
+      call.get();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.hitunes.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.hitunes.models.*;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class CustomerProjectionTest {
+
+  @Test
+  void alwaysSelectsTheId() {
+    var projection = CustomerProjection.of(Set.of(CustomerField.EMAIL));
+
+    assertEquals("customer_id, email", projection.columns());
+    assertEquals(2, projection.size());
+    assertSame(projection, CustomerProjection.of(Set.of(CustomerField.ID, CustomerField.EMAIL)));
+  }
+
+  @Test
+  void qualifiesEveryColumnWithTheAlias() {
+    var projection = CustomerProjection.of(CustomerField.SUMMARY);
+
+    assertEquals("c.customer_id, c.first_name, c.last_name", projection.columns("c"));
+  }
+
+  @Test
+  void readsEveryFieldFromItsOwnColumn() throws Exception {
+    var projection = CustomerProjection.ALL;
+
+    var customer = projection.read(row(projection.columns(), "42"));
+
+    assertEquals(
+        new Customer(
+            42, "phone", "postal_code", "address", "country", "first_name", "last_name", "email"),
+        customer);
+  }
+
+  @Test
+  void leavesFieldsOutsideTheProjectionNull() throws Exception {
+    var projection = CustomerProjection.of(CustomerField.SUMMARY);
+
+    var customer = projection.read(row(projection.columns(), "7"));
+
+    assertEquals(
+        new Customer(7, null, null, null, null, "first_name", "last_name", null), customer);
+  }
+
+  @Test
+  void ignoresColumnsAfterTheProjection() throws Exception {
+    var projection = CustomerProjection.of(Set.of(CustomerField.COUNTRY));
+
+    // A row with trailing columns, as in the aggregate queries of CustomerRepoImpl.
+    var res = row(projection.columns() + ", total", "3");
+
+    assertEquals(
+        new Customer(3, null, null, null, "country", null, null, null), projection.read(res));
+  }
+
+  /**
+   * Returns a result set whose row holds the column name as the value of every string column, and
+   * the given id in the first column. Only index based getters are supported, so name lookups fail.
+   */
+  private static ResultSet row(String columns, String id) {
+    var names = columns.split(", ");
+
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+              if (args == null || !(args[0] instanceof Integer index)) {
+                throw new UnsupportedOperationException(method.getName());
+              }
+
+              var value = index == 1 ? id : names[index - 1];
+
+              return switch (method.getName()) {
+                case "getInt" -> Integer.parseInt(value);
+                case "getString" -> value;
+                default -> throw new UnsupportedOperationException(method.getName());
+              };
+            });
+  }
+}
@@ -0,0 +1,88 @@
+package com.hitunes.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class OrderStatisticTreeTest {
+
+  @Test
+  void matchesTreeSetUnderRandomInsertsAndRemoves() {
+    var random = new Random(42);
+    var tree = new OrderStatisticTree<Integer>(Comparator.naturalOrder());
+    var reference = new TreeSet<Integer>();
+
+    for (var i = 0; i < 50_000; i++) {
+      var value = random.nextInt(2_000);
+
+      if (random.nextBoolean()) {
+        tree.insert(value);
+        reference.add(value);
+      } else {
+        tree.remove(value);
+        reference.remove(value);
+      }
+
+      if (i % 500 == 0) assertSameContents(reference, tree);
+    }
+
+    assertSameContents(reference, tree);
+  }
+
+  @Test
+  void ignoresDuplicateInsertsAndMissingRemoves() {
+    var tree = new OrderStatisticTree<Integer>(Comparator.naturalOrder());
+
+    tree.insert(5);
+    tree.insert(5);
+    tree.remove(7);
+
+    assertEquals(1, tree.size());
+    assertEquals(5, tree.select(0));
+  }
+
+  @Test
+  void ranksValuesThatAreNotInTheTree() {
+    var tree = new OrderStatisticTree<Integer>(Comparator.naturalOrder());
+    List.of(10, 20, 30).forEach(tree::insert);
+
+    assertEquals(0, tree.rank(5));
+    assertEquals(1, tree.rank(15));
+    assertEquals(1, tree.rank(20));
+    assertEquals(3, tree.rank(99));
+  }
+
+  @Test
+  void selectRejectsOutOfRangeIndexes() {
+    var tree = new OrderStatisticTree<Integer>(Comparator.naturalOrder());
+    tree.insert(1);
+
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+  }
+
+  @Test
+  void headStopsAtLimitAndSize() {
+    var tree = new OrderStatisticTree<Integer>(Comparator.naturalOrder());
+    List.of(3, 1, 2).forEach(tree::insert);
+
+    assertEquals(List.of(1, 2), tree.head(2));
+    assertEquals(List.of(1, 2, 3), tree.head(10));
+    assertEquals(List.of(), tree.head(0));
+  }
+
+  private static void assertSameContents(
+      TreeSet<Integer> reference, OrderStatisticTree<Integer> tree) {
+    assertEquals(reference.size(), tree.size());
+
+    var expected = new ArrayList<>(reference);
+
+    for (var i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), tree.select(i));
+      assertEquals(i, tree.rank(expected.get(i)));
+    }
+
+    assertEquals(expected.subList(0, Math.min(10, expected.size())), tree.head(10));
+  }
+}
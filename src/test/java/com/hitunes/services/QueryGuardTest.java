@@ -0,0 +1,94 @@
+package com.hitunes.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+class QueryGuardTest {
+
+  @Test
+  void usesWorkloadDefaultsWhenUnset() throws Exception {
+    var guard = new QueryGuard(new MockEnvironment());
+
+    assertEquals(Workload.OLTP.timeoutSeconds, timeoutOf(guard, RepoMethod.GET_BY_ID));
+    assertEquals(Workload.BULK.timeoutSeconds, timeoutOf(guard, RepoMethod.STREAM_ALL));
+    assertEquals(Workload.ANALYTICS.maxConcurrent, guard.maxConcurrentCalls());
+  }
+
+  @Test
+  void methodTimeoutOverridesWorkloadTimeout() throws Exception {
+    var env =
+        new MockEnvironment()
+            .withProperty("hitunes.resilience.analytics.timeout-seconds", "10")
+            .withProperty("hitunes.resilience.timeout.get-top-spender", "5");
+    var guard = new QueryGuard(env);
+
+    assertEquals(5, timeoutOf(guard, RepoMethod.GET_TOP_SPENDER));
+    assertEquals(10, timeoutOf(guard, RepoMethod.GET_COUNTRY_WITH_MOST_CUSTOMERS));
+  }
+
+  @Test
+  void maxConcurrentCallsIsTheSmallestBulkhead() {
+    var env = new MockEnvironment().withProperty("hitunes.resilience.bulk.max-concurrent", "1");
+
+    assertEquals(1, new QueryGuard(env).maxConcurrentCalls());
+  }
+
+  @Test
+  void rejectsSettingsBelowTheirMinimum() {
+    for (var setting :
+        List.of(
+            "hitunes.resilience.oltp.max-concurrent=0",
+            "hitunes.resilience.analytics.max-queued=-1",
+            "hitunes.resilience.bulk.max-wait-ms=-1",
+            "hitunes.resilience.oltp.timeout-seconds=-1",
+            "hitunes.resilience.timeout.get-top-spender=-5")) {
+      var keyValue = setting.split("=");
+      var env = new MockEnvironment().withProperty(keyValue[0], keyValue[1]);
+
+      var e = assertThrows(IllegalArgumentException.class, () -> new QueryGuard(env));
+      assertTrue(e.getMessage().startsWith(keyValue[0]), e.getMessage());
+    }
+  }
+
+  @Test
+  void acceptsZeroForUnlimitedTimeoutsAndNoQueue() {
+    var env =
+        new MockEnvironment()
+            .withProperty("hitunes.resilience.oltp.max-queued", "0")
+            .withProperty("hitunes.resilience.oltp.max-wait-ms", "0")
+            .withProperty("hitunes.resilience.timeout.stream-all", "0");
+
+    assertDoesNotThrow(() -> new QueryGuard(env));
+  }
+
+  /** Prepares a statement for the method on a fake connection and returns its query timeout. */
+  private static int timeoutOf(QueryGuard guard, RepoMethod method) throws SQLException {
+    var timeout = new int[] {-1};
+
+    var statement =
+        (PreparedStatement)
+            Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, m, args) -> {
+                  if (m.getName().equals("setQueryTimeout")) timeout[0] = (int) args[0];
+                  return null;
+                });
+
+    var conn =
+        (Connection)
+            Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, m, args) -> m.getName().equals("prepareStatement") ? statement : null);
+
+    guard.call(method, prepare -> prepare.apply(conn, "select 1"));
+
+    return timeout[0];
+  }
+}
@@ -0,0 +1,135 @@
+package com.hitunes.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.hitunes.models.*;
+import com.hitunes.repositories.CustomerRepo;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class SpendingLeaderboardTest {
+
+  @Test
+  void percentileCountsTiesAsSpendingAtLeastAsMuch() throws Exception {
+    var leaderboard =
+        leaderboard(
+            spending(1, "Norway", "10.00"),
+            spending(2, "Norway", "20.00"),
+            spending(3, "Brazil", "20.00"),
+            spending(4, "Brazil", "30.00"));
+
+    assertEquals(0.0, leaderboard.getPercentile(1).orElseThrow());
+    assertEquals(25.0, leaderboard.getPercentile(2).orElseThrow());
+    assertEquals(25.0, leaderboard.getPercentile(3).orElseThrow());
+    assertEquals(75.0, leaderboard.getPercentile(4).orElseThrow());
+    assertTrue(leaderboard.getPercentile(99).isEmpty());
+  }
+
+  @Test
+  void ranksGloballyAndPerCountry() throws Exception {
+    var leaderboard =
+        leaderboard(
+            spending(1, "Norway", "10.00"),
+            spending(2, "Norway", "20.00"),
+            spending(3, "Brazil", "30.00"));
+
+    assertEquals(2, leaderboard.getRank(2).orElseThrow().rank());
+    assertEquals(1, leaderboard.getCountryRank(2).orElseThrow().rank());
+    assertEquals(
+        List.of(3, 2),
+        leaderboard.getTopSpenders(2).stream().map(e -> e.customer().customerId()).toList());
+    assertEquals(
+        List.of(2, 1),
+        leaderboard.getTopSpenders("Norway", 5).stream()
+            .map(e -> e.customer().customerId())
+            .toList());
+  }
+
+  @Test
+  void recordInvoiceSkipsInvoicesIncludedInTheLoad() throws Exception {
+    var leaderboard =
+        leaderboard(
+            Set.of(1, 2, 4), spending(1, "Norway", "10.00"), spending(2, "Norway", "20.00"));
+
+    assertFalse(leaderboard.recordInvoice(4, 1, new BigDecimal("50.00")));
+    assertEquals(2, leaderboard.getRank(1).orElseThrow().rank());
+  }
+
+  @Test
+  void recordInvoiceAppliesInvoicesCommittedAfterTheLoadOnce() throws Exception {
+    var leaderboard =
+        leaderboard(
+            Set.of(1, 2, 4), spending(1, "Norway", "10.00"), spending(2, "Norway", "20.00"));
+
+    // Invoice 3 was still in flight when invoice 4 was loaded.
+    assertTrue(leaderboard.recordInvoice(3, 1, new BigDecimal("15.00")));
+    assertFalse(leaderboard.recordInvoice(3, 1, new BigDecimal("15.00")));
+
+    var entry = leaderboard.getRank(1).orElseThrow();
+    assertEquals(1, entry.rank());
+    assertEquals(new BigDecimal("25.00"), entry.amountSpent());
+  }
+
+  @Test
+  void syncInvoicesAppliesOnlyUncountedInvoices() throws Exception {
+    var invoices =
+        List.of(
+            new InvoiceTotal(3, 1, new BigDecimal("15.00")),
+            new InvoiceTotal(4, 2, new BigDecimal("99.00")),
+            new InvoiceTotal(5, 2, new BigDecimal("1.00")));
+    var leaderboard =
+        leaderboard(
+            Set.of(1, 2, 4),
+            invoices,
+            spending(1, "Norway", "10.00"),
+            spending(2, "Norway", "20.00"));
+
+    assertEquals(2, leaderboard.syncInvoices());
+    assertEquals(0, leaderboard.syncInvoices());
+
+    assertEquals(new BigDecimal("25.00"), leaderboard.getRank(1).orElseThrow().amountSpent());
+    assertEquals(new BigDecimal("21.00"), leaderboard.getRank(2).orElseThrow().amountSpent());
+  }
+
+  private static CustomerSpending spending(int customerId, String country, String amount) {
+    return new CustomerSpending(
+        new Customer(customerId, null, null, null, country, "First", "Last", null),
+        new BigDecimal(amount));
+  }
+
+  private static SpendingLeaderboard leaderboard(CustomerSpending... spending) {
+    return leaderboard(Set.of(), List.of(), spending);
+  }
+
+  private static SpendingLeaderboard leaderboard(
+      Set<Integer> invoiceIds, CustomerSpending... spending) {
+    return leaderboard(invoiceIds, List.of(), spending);
+  }
+
+  /**
+   * Returns a leaderboard backed by a repository that serves the given snapshot, and the given
+   * invoices from the requested id on.
+   */
+  private static SpendingLeaderboard leaderboard(
+      Set<Integer> invoiceIds, List<InvoiceTotal> invoices, CustomerSpending... spending) {
+    var snapshot = new SpendingSnapshot(List.of(spending), invoiceIds);
+
+    var repo =
+        (CustomerRepo)
+            Proxy.newProxyInstance(
+                CustomerRepo.class.getClassLoader(),
+                new Class<?>[] {CustomerRepo.class},
+                (proxy, method, args) -> {
+                  if (method.getName().equals("getSpendingSnapshot")) return snapshot;
+                  if (method.getName().equals("getInvoicesFrom")) {
+                    var from = (int) args[0];
+                    return invoices.stream().filter(i -> i.invoiceId() >= from).toList();
+                  }
+                  throw new UnsupportedOperationException(method.getName());
+                });
+
+    return new SpendingLeaderboard(repo);
+  }
+}